@@ -2,8 +2,10 @@ package uth.edu.vn.lms_user_service;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class LmsUserServiceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,21 @@
+package uth.edu.vn.lms_user_service.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Compact binary layout for one cached value type
+ *
+ * The schema version is written in front of every value by {@link CodecRedisSerializer}.
+ * Bump it whenever the layout (or the DTO behind it) changes: entries written with another
+ * version then read as misses instead of being decoded into the wrong fields.
+ */
+public interface CacheCodec<T> {
+
+    byte schemaVersion();
+
+    void write(T value, DataOutput out) throws IOException;
+
+    T read(DataInput in) throws IOException;
+}
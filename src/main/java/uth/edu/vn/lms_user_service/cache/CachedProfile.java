@@ -0,0 +1,20 @@
+package uth.edu.vn.lms_user_service.cache;
+
+import uth.edu.vn.lms_user_service.dto.UserResponse;
+
+/**
+ * Redis (L2) entry for a user profile
+ *
+ * @param profile     cached profile
+ * @param loadMillis  how long the database load took; scales the early-refresh window
+ * @param expiresAt   logical expiry (epoch millis, jittered); the Redis key lives a little
+ *                    longer so readers can be served the stale value while it is refreshed
+ * @param version     the user's version when the load started; the entry is only served
+ *                    while that is still the current version
+ */
+public record CachedProfile(UserResponse profile, long loadMillis, long expiresAt, long version) {
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+}
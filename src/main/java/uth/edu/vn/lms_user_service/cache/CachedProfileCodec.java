@@ -0,0 +1,42 @@
+package uth.edu.vn.lms_user_service.cache;
+
+import uth.edu.vn.lms_user_service.dto.UserResponse;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary layout of the L2 profile envelope: load time, logical expiry, version, then the profile
+ * (absent for a negative entry). Shares {@link UserResponseCodec}'s schema version; bump
+ * that constant when either layout changes.
+ */
+public final class CachedProfileCodec implements CacheCodec<CachedProfile> {
+
+    private final UserResponseCodec profiles = new UserResponseCodec();
+
+    @Override
+    public byte schemaVersion() {
+        return profiles.schemaVersion();
+    }
+
+    @Override
+    public void write(CachedProfile cached, DataOutput out) throws IOException {
+        UserResponseCodec.writeVarLong(out, cached.loadMillis());
+        out.writeLong(cached.expiresAt());
+        UserResponseCodec.writeVarLong(out, cached.version());
+        out.writeBoolean(cached.profile() != null);
+        if (cached.profile() != null) {
+            profiles.write(cached.profile(), out);
+        }
+    }
+
+    @Override
+    public CachedProfile read(DataInput in) throws IOException {
+        long loadMillis = UserResponseCodec.readVarLong(in);
+        long expiresAt = in.readLong();
+        long version = UserResponseCodec.readVarLong(in);
+        UserResponse profile = in.readBoolean() ? profiles.read(in) : null;
+        return new CachedProfile(profile, loadMillis, expiresAt, version);
+    }
+}
@@ -0,0 +1,89 @@
+package uth.edu.vn.lms_user_service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Redis value serializer backed by a {@link CacheCodec}
+ *
+ * Layout: magic byte, schema version byte, codec payload. Values from an older or newer
+ * schema deserialize to null (a cache miss). Values without the magic byte are JSON written
+ * before the codec existed and are read with the fallback mapper, so a rolling deploy does
+ * not flush the cache; they are replaced by binary entries as they are refilled.
+ */
+public class CodecRedisSerializer<T> implements RedisSerializer<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(CodecRedisSerializer.class);
+    // Cannot start a JSON document, so binary and legacy JSON values are told apart by the first byte
+    static final byte MAGIC = (byte) 0xCA;
+
+    private final CacheCodec<T> codec;
+    private final Class<T> type;
+    private final ObjectMapper jsonFallback;
+
+    /**
+     * @param jsonFallback mapper for values written as JSON before the codec, or null to treat them as misses
+     */
+    public CodecRedisSerializer(CacheCodec<T> codec, Class<T> type, ObjectMapper jsonFallback) {
+        this.codec = codec;
+        this.type = type;
+        this.jsonFallback = jsonFallback;
+    }
+
+    @Override
+    public byte[] serialize(T value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MAGIC);
+            out.writeByte(codec.schemaVersion());
+            codec.write(value, out);
+        } catch (IOException e) {
+            throw new SerializationException("Cannot encode " + type.getSimpleName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return readJson(bytes);
+        }
+        if (bytes.length < 2 || bytes[1] != codec.schemaVersion()) {
+            log.debug("Ignoring cached {} with schema version {}", type.getSimpleName(), bytes.length < 2 ? -1 : bytes[1]);
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 2, bytes.length - 2))) {
+            return codec.read(in);
+        } catch (IOException e) {
+            log.warn("Discarding unreadable cached {}: {}", type.getSimpleName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private T readJson(byte[] bytes) {
+        if (jsonFallback == null) {
+            return null;
+        }
+        try {
+            return jsonFallback.readValue(bytes, type);
+        } catch (IOException e) {
+            log.warn("Discarding unreadable cached {}: {}", type.getSimpleName(), e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,715 @@
+package uth.edu.vn.lms_user_service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uth.edu.vn.lms_user_service.dto.UserResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Two-level cache for user profiles
+ *
+ * L1: bounded in-process Caffeine cache (size and write-TTL limited)
+ * L2: Redis {@code user:profile:<id>} shared by all nodes, holding a {@link CachedProfile}
+ *     in the binary {@link CachedProfileCodec} layout
+ *
+ * Every write bumps a per-user version ({@code user:profile:version:<id>}, INCR) after its
+ * transaction commits. L2 entries carry the version they were loaded under and are read in the
+ * same MGET as the current version, so an entry filled from a row read before the write is
+ * rejected even if it lands after the invalidation. The invalidation also deletes the L2 key
+ * and publishes the user id on {@link #INVALIDATION_CHANNEL}; every node (including this one)
+ * evicts its L1 copy on receipt. If a message is lost (e.g. during a Redis reconnect), a node
+ * serves a stale profile for at most the L1 TTL.
+ *
+ * Misses are single-flight: concurrent misses for one user on a node share one load, and
+ * across nodes only the holder of a short Redis lock loads while the others wait for L2.
+ *
+ * Expiry is spread out: the L2 TTL is jittered, and readers refresh an entry in the
+ * background before it expires with probability rising towards expiry (XFetch), so entries
+ * written together do not all miss together. An entry past its logical expiry is still
+ * served during a short grace period while it is refreshed.
+ *
+ * Unknown ids are answered without the database: {@link UserIdFilter} rules out ids that
+ * certainly do not exist, and loads that find nothing leave a short-lived negative entry.
+ * Negative entries are versioned like profiles and registration bumps the version, so a
+ * lookup that read no row before the user was created cannot hide the new user.
+ * Loaders return null for a missing user; lookups then return null too.
+ */
+@Component
+public class UserCache implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(UserCache.class);
+    public static final String KEY_PREFIX = "user:profile:";
+    public static final String INVALIDATION_CHANNEL = "user:profile:invalidate";
+    private static final String LOCK_PREFIX = "user:profile:lock:";
+    private static final String MISSING_PREFIX = "user:profile:missing:";
+    private static final String VERSION_PREFIX = "user:profile:version:";
+    // Version of a read that failed; entries tagged with it never match
+    private static final long UNKNOWN_VERSION = -1;
+    private static final long FILL_POLL_MILLIS = 25;
+    private static final int GENERATION_STRIPES = 4096;
+
+    /**
+     * L1 bounds; L2 TTL with its jitter fraction and stale grace; early refresh tuning
+     * (beta scales the window, minDelta floors the measured load time); cross-node load lock
+     * (lockTtl caps how long a crashed loader blocks others, lockWait is how long a node waits
+     * for another node's fill before loading itself); lifetime of negative entries
+     */
+    record Settings(long l1MaxSize, Duration l1Ttl,
+                    Duration l2Ttl, double l2TtlJitter, Duration staleGrace,
+                    double earlyRefreshBeta, Duration earlyRefreshMinDelta,
+                    Duration lockTtl, Duration lockWait, Duration negativeTtl) {}
+
+    /**
+     * One user's L2 state: a current entry (profile-less when negative) or null; and the current version
+     */
+    private record SharedRead(CachedProfile entry, long version) {
+
+        boolean isMissing() {
+            return entry != null && entry.profile() == null;
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisTemplate<String, CachedProfile> profileTemplate;
+    private final RedisSerializer<CachedProfile> profileSerializer;
+    private final UserIdFilter idFilter;
+    private final Settings settings;
+    private final LongSupplier clock;
+    private final Cache<Long, UserResponse> local;
+    // Bumped on every eviction of a user (striped by id); an L1 put whose load started under an
+    // older generation is discarded, so an in-flight read cannot re-cache a row the write replaced
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final ConcurrentHashMap<Long, CompletableFuture<UserResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+    private final DistributionSummary batchSizes;
+    private final Counter coalescedLocal;
+    private final Counter coalescedRemote;
+    private final Counter missLoads;
+    private final Counter earlyLoads;
+    private final Counter staleLoads;
+    private final Counter filterAvoided;
+    private final Counter negativeAvoided;
+    private final Counter versionRejected;
+
+    @Autowired
+    public UserCache(StringRedisTemplate redisTemplate, RedisTemplate<String, CachedProfile> profileRedisTemplate,
+                     UserIdFilter idFilter,
+                     MeterRegistry meterRegistry,
+                     @Value("${app.cache.user.l1.max-size:10000}") long l1MaxSize,
+                     @Value("${app.cache.user.l1.ttl:PT30S}") Duration l1Ttl,
+                     @Value("${app.cache.user.l2.ttl:PT1H}") Duration l2Ttl,
+                     @Value("${app.cache.user.l2.ttl-jitter:0.1}") double l2TtlJitter,
+                     @Value("${app.cache.user.l2.stale-grace:PT5M}") Duration staleGrace,
+                     @Value("${app.cache.user.early-refresh.beta:1.0}") double earlyRefreshBeta,
+                     @Value("${app.cache.user.early-refresh.min-delta:PT5S}") Duration earlyRefreshMinDelta,
+                     @Value("${app.cache.user.load-lock.ttl:PT2S}") Duration lockTtl,
+                     @Value("${app.cache.user.load-lock.wait:PT0.5S}") Duration lockWait,
+                     @Value("${app.cache.user.negative-ttl:PT1M}") Duration negativeTtl) {
+        this(redisTemplate, profileRedisTemplate, idFilter, meterRegistry,
+            new Settings(l1MaxSize, l1Ttl, l2Ttl, l2TtlJitter, staleGrace, earlyRefreshBeta, earlyRefreshMinDelta,
+                lockTtl, lockWait, negativeTtl),
+            Ticker.systemTicker(), System::currentTimeMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    UserCache(StringRedisTemplate redisTemplate, RedisTemplate<String, CachedProfile> profileTemplate,
+              UserIdFilter idFilter, MeterRegistry meterRegistry, Settings settings, Ticker ticker, LongSupplier clock) {
+        this.redisTemplate = redisTemplate;
+        this.profileTemplate = profileTemplate;
+        this.profileSerializer = (RedisSerializer<CachedProfile>) profileTemplate.getValueSerializer();
+        this.idFilter = idFilter;
+        this.settings = settings;
+        this.clock = clock;
+        this.local = Caffeine.newBuilder()
+            .maximumSize(settings.l1MaxSize())
+            .expireAfterWrite(settings.l1Ttl())
+            .ticker(ticker)
+            .build();
+        this.l1Hits = counter(meterRegistry, "l1", "hit");
+        this.l1Misses = counter(meterRegistry, "l1", "miss");
+        this.l2Hits = counter(meterRegistry, "l2", "hit");
+        this.l2Misses = counter(meterRegistry, "l2", "miss");
+        this.batchSizes = DistributionSummary.builder("user.profile.cache.batch.size")
+            .description("Distinct user ids per batch lookup")
+            .register(meterRegistry);
+        this.coalescedLocal = Counter.builder("user.profile.cache.coalesced")
+            .tag("scope", "local")
+            .description("Misses that joined a load already running on this node")
+            .register(meterRegistry);
+        this.coalescedRemote = Counter.builder("user.profile.cache.coalesced")
+            .tag("scope", "remote")
+            .description("Misses served by another node's fill while it held the load lock")
+            .register(meterRegistry);
+        this.missLoads = loadCounter(meterRegistry, "miss");
+        this.earlyLoads = loadCounter(meterRegistry, "early-refresh");
+        this.staleLoads = loadCounter(meterRegistry, "stale-refresh");
+        this.filterAvoided = avoidedCounter(meterRegistry, "id-filter");
+        this.negativeAvoided = avoidedCounter(meterRegistry, "negative-cache");
+        this.versionRejected = Counter.builder("user.profile.cache.version.rejected")
+            .description("L2 entries discarded because the user was written after they were loaded")
+            .register(meterRegistry);
+    }
+
+    private static Counter counter(MeterRegistry registry, String level, String result) {
+        return Counter.builder("user.profile.cache")
+            .tag("level", level)
+            .tag("result", result)
+            .description("User profile cache lookups per level")
+            .register(registry);
+    }
+
+    // Database loads by cause; a high early-refresh share means expiries are absorbed off the request path
+    private static Counter loadCounter(MeterRegistry registry, String cause) {
+        return Counter.builder("user.profile.cache.loads")
+            .tag("cause", cause)
+            .description("User profiles loaded from the database")
+            .register(registry);
+    }
+
+    // Lookups of unknown ids answered without a database query
+    private static Counter avoidedCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("user.profile.cache.db.avoided")
+            .tag("reason", reason)
+            .description("Lookups of missing users answered without the database")
+            .register(registry);
+    }
+
+    /**
+     * L1 -> id filter -> L2 (profile or negative entry) -> loader; a loaded profile is written
+     * to both levels. Returns null when the user does not exist.
+     */
+    public UserResponse get(Long userId, Function<Long, UserResponse> loader) {
+        UserResponse cached = local.getIfPresent(userId);
+        if (cached != null) {
+            l1Hits.increment();
+            return cached;
+        }
+        l1Misses.increment();
+        long generation = generation(userId);
+
+        if (!idFilter.mightExist(userId)) {
+            filterAvoided.increment();
+            return null;
+        }
+
+        SharedRead shared = readShared(userId);
+        if (shared.isMissing()) {
+            negativeAvoided.increment();
+            return null;
+        }
+        if (shared.entry() != null) {
+            l2Hits.increment();
+            return serveShared(userId, shared.entry(), loader, generation);
+        }
+        l2Misses.increment();
+
+        return loadOnce(userId, shared.version(), loader, generation);
+    }
+
+    /**
+     * Serve an L2 entry, scheduling a background refresh when it is stale or due early
+     */
+    private UserResponse serveShared(Long userId, CachedProfile shared, Function<Long, UserResponse> loader,
+                                     long generation) {
+        long now = clock.getAsLong();
+        if (shared.isExpired(now)) {
+            // Stale copies stay out of L1 so they are not served past the refresh
+            refreshAsync(userId, shared.version(), loader, staleLoads);
+            return shared.profile();
+        }
+        if (isEarlyRefreshDue(shared, now)) {
+            refreshAsync(userId, shared.version(), loader, earlyLoads);
+        }
+        putLocal(userId, shared.profile(), generation);
+        return shared.profile();
+    }
+
+    /**
+     * XFetch: refresh when now - delta * beta * ln(rand) reaches the expiry, so the chance
+     * grows as expiry nears and slow-to-load entries start earlier
+     */
+    private boolean isEarlyRefreshDue(CachedProfile shared, long now) {
+        long delta = Math.max(shared.loadMillis(), settings.earlyRefreshMinDelta().toMillis());
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return now - delta * settings.earlyRefreshBeta() * Math.log(random) >= shared.expiresAt();
+    }
+
+    private void refreshAsync(Long userId, long version, Function<Long, UserResponse> loader, Counter cause) {
+        if (!refreshing.add(userId)) {
+            return;
+        }
+        refreshExecutor.execute(() -> {
+            String lockKey = LOCK_PREFIX + userId;
+            long generation = generation(userId);
+            try {
+                // Another node holding the lock is already loading this profile
+                if (!tryLock(lockKey)) {
+                    return;
+                }
+                try {
+                    CachedProfile refreshed = timedLoad(userId, version, loader);
+                    cause.increment();
+                    if (refreshed.profile() == null) {
+                        writeMissing(userId, version);
+                        return;
+                    }
+                    writeShared(userId, refreshed);
+                    putLocal(userId, refreshed.profile(), generation);
+                } finally {
+                    releaseLock(lockKey);
+                }
+            } catch (Exception e) {
+                log.warn("Background refresh failed for user {}: {}", userId, e.getMessage());
+            } finally {
+                refreshing.remove(userId);
+            }
+        });
+    }
+
+    /**
+     * Concurrent misses for the same user on this node share one in-flight load
+     */
+    private UserResponse loadOnce(Long userId, long version, Function<Long, UserResponse> loader, long generation) {
+        CompletableFuture<UserResponse> flight = new CompletableFuture<>();
+        CompletableFuture<UserResponse> running = inFlight.putIfAbsent(userId, flight);
+        if (running != null) {
+            coalescedLocal.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            UserResponse loaded = loadAcrossNodes(userId, version, loader);
+            if (loaded != null) {
+                putLocal(userId, loaded, generation);
+            }
+            flight.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(userId, flight);
+        }
+    }
+
+    /**
+     * Only the holder of the short Redis load lock queries the database and fills L2.
+     * Other nodes poll L2 for up to lockWait and load themselves if the fill never comes.
+     * The fill is tagged with the version read before the load.
+     */
+    private UserResponse loadAcrossNodes(Long userId, long version, Function<Long, UserResponse> loader) {
+        String lockKey = LOCK_PREFIX + userId;
+        boolean locked = tryLock(lockKey);
+
+        if (!locked) {
+            CachedProfile filled = awaitFill(userId);
+            if (filled != null) {
+                coalescedRemote.increment();
+                return filled.profile();
+            }
+        }
+
+        try {
+            CachedProfile loaded = timedLoad(userId, version, loader);
+            missLoads.increment();
+            if (loaded.profile() == null) {
+                idFilter.recordMissing(userId);
+                writeMissing(userId, version);
+                return null;
+            }
+            writeShared(userId, loaded);
+            return loaded.profile();
+        } finally {
+            if (locked) {
+                releaseLock(lockKey);
+            }
+        }
+    }
+
+    private CachedProfile awaitFill(Long userId) {
+        long deadline = System.nanoTime() + settings.lockWait().toNanos();
+        try {
+            while (System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(FILL_POLL_MILLIS);
+                CachedProfile filled = readShared(userId).entry();
+                if (filled != null) {
+                    return filled;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private boolean tryLock(String lockKey) {
+        try {
+            return !Boolean.FALSE.equals(
+                redisTemplate.opsForValue().setIfAbsent(lockKey, nodeId, settings.lockTtl()));
+        } catch (Exception e) {
+            // No coordination without Redis; load directly
+            return true;
+        }
+    }
+
+    private void releaseLock(String lockKey) {
+        try {
+            // Not atomic, but the lock TTL is short and a stray delete only allows one extra load
+            if (nodeId.equals(redisTemplate.opsForValue().get(lockKey))) {
+                redisTemplate.delete(lockKey);
+            }
+        } catch (Exception e) {
+            // Expires on its own
+        }
+    }
+
+    /**
+     * Batch lookup: L1, then one MGET for the rest, then one loader call for the remaining misses.
+     * Loaded profiles (and negative entries for ids the loader did not return) are written back
+     * to Redis in a single pipeline. The result follows the requested order including duplicates;
+     * missing users are skipped.
+     */
+    public List<UserResponse> getAll(List<Long> userIds, Function<List<Long>, Map<Long, UserResponse>> loader) {
+        Set<Long> distinct = new LinkedHashSet<>(userIds);
+        distinct.remove(null);
+        batchSizes.record(distinct.size());
+
+        Map<Long, UserResponse> found = new HashMap<>(local.getAllPresent(distinct));
+        l1Hits.increment(found.size());
+        List<Long> l1Missing = distinct.stream().filter(id -> !found.containsKey(id)).toList();
+        l1Misses.increment(l1Missing.size());
+
+        List<Long> candidates = l1Missing.stream().filter(idFilter::mightExist).toList();
+        filterAvoided.increment(l1Missing.size() - candidates.size());
+        l1Missing = candidates;
+
+        Map<Long, Long> generationsBefore = new HashMap<>();
+        l1Missing.forEach(id -> generationsBefore.put(id, generation(id)));
+
+        List<Long> l2Missing = l1Missing;
+        Map<Long, Long> versions = new HashMap<>();
+        if (!l1Missing.isEmpty()) {
+            Function<Long, UserResponse> single = id -> loader.apply(List.of(id)).get(id);
+            try {
+                List<SharedRead> shared = readShared(l1Missing);
+                List<Long> stillMissing = new ArrayList<>();
+                for (int i = 0; i < l1Missing.size(); i++) {
+                    Long id = l1Missing.get(i);
+                    SharedRead read = shared.get(i);
+                    if (read.isMissing()) {
+                        negativeAvoided.increment();
+                    } else if (read.entry() != null) {
+                        found.put(id, serveShared(id, read.entry(), single, generationsBefore.get(id)));
+                    } else {
+                        stillMissing.add(id);
+                        versions.put(id, read.version());
+                    }
+                }
+                l2Missing = stillMissing;
+            } catch (Exception e) {
+                log.warn("Redis batch cache read failed for {} users: {}", l1Missing.size(), e.getMessage());
+            }
+            l2Hits.increment(l1Missing.size() - l2Missing.size());
+            l2Misses.increment(l2Missing.size());
+        }
+
+        if (!l2Missing.isEmpty()) {
+            long started = System.nanoTime();
+            Map<Long, UserResponse> loaded = loader.apply(l2Missing);
+            long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            missLoads.increment(l2Missing.size());
+            found.putAll(loaded);
+            loaded.forEach((id, profile) -> putLocal(id, profile, generationsBefore.get(id)));
+            List<Long> absent = l2Missing.stream().filter(id -> !loaded.containsKey(id)).toList();
+            absent.forEach(idFilter::recordMissing);
+            fillShared(loaded, versions, absent, loadMillis);
+        }
+
+        return userIds.stream()
+            .map(id -> id != null ? found.get(id) : null)
+            .filter(Objects::nonNull)
+            .toList();
+    }
+
+    private void fillShared(Map<Long, UserResponse> loaded, Map<Long, Long> versions, List<Long> absent,
+                            long loadMillis) {
+        if (loaded.isEmpty() && absent.isEmpty()) {
+            return;
+        }
+        try {
+            profileTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, CachedProfile> ops = (RedisOperations<String, CachedProfile>) operations;
+                    for (Map.Entry<Long, UserResponse> entry : loaded.entrySet()) {
+                        long version = versions.getOrDefault(entry.getKey(), UNKNOWN_VERSION);
+                        CachedProfile cached = envelope(entry.getValue(), loadMillis, version);
+                        ops.opsForValue().set(KEY_PREFIX + entry.getKey(), cached, redisTtl(cached));
+                    }
+                    for (Long id : absent) {
+                        ops.opsForValue().set(MISSING_PREFIX + id, missing(versions.getOrDefault(id, UNKNOWN_VERSION)),
+                            settings.negativeTtl());
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Redis batch cache write failed for {} users: {}", loaded.size(), e.getMessage());
+        }
+    }
+
+    private CachedProfile timedLoad(Long userId, long version, Function<Long, UserResponse> loader) {
+        long started = System.nanoTime();
+        UserResponse profile = loader.apply(userId);
+        return envelope(profile, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), version);
+    }
+
+    /**
+     * Wrap a freshly loaded profile with a jittered logical expiry and the version it was loaded under
+     */
+    private CachedProfile envelope(UserResponse profile, long loadMillis, long version) {
+        long ttl = settings.l2Ttl().toMillis();
+        long jitter = (long) (ttl * settings.l2TtlJitter() * ThreadLocalRandom.current().nextDouble());
+        return new CachedProfile(profile, loadMillis, clock.getAsLong() + ttl + jitter, version);
+    }
+
+    // Negative entry: a profile-less envelope, tagged like profiles with the version read before the load
+    private static CachedProfile missing(long version) {
+        return new CachedProfile(null, 0, Long.MAX_VALUE, version);
+    }
+
+    // Redis keeps the entry for the stale grace period past its logical expiry
+    private Duration redisTtl(CachedProfile cached) {
+        return Duration.ofMillis(Math.max(1, cached.expiresAt() - clock.getAsLong())).plus(settings.staleGrace());
+    }
+
+    private SharedRead readShared(Long userId) {
+        try {
+            return readShared(List.of(userId)).get(0);
+        } catch (Exception e) {
+            log.warn("Redis cache read failed for user {}: {}", userId, e.getMessage());
+            // Continue to database on cache failure
+            return new SharedRead(null, UNKNOWN_VERSION);
+        }
+    }
+
+    /**
+     * Profile, negative and version keys of every user in one MGET. Entries (negative ones
+     * included) loaded under an older version are dropped here, so callers only see current ones.
+     */
+    private List<SharedRead> readShared(List<Long> userIds) {
+        byte[][] keys = new byte[userIds.size() * 3][];
+        for (int i = 0; i < userIds.size(); i++) {
+            Long id = userIds.get(i);
+            keys[i * 3] = (KEY_PREFIX + id).getBytes(StandardCharsets.UTF_8);
+            keys[i * 3 + 1] = (MISSING_PREFIX + id).getBytes(StandardCharsets.UTF_8);
+            keys[i * 3 + 2] = (VERSION_PREFIX + id).getBytes(StandardCharsets.UTF_8);
+        }
+        List<byte[]> values = profileTemplate.execute(
+            (RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(keys));
+        if (values == null) {
+            throw new IllegalStateException("MGET returned no result");
+        }
+
+        List<SharedRead> reads = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            byte[] rawVersion = values.get(i * 3 + 2);
+            long version = rawVersion != null ? Long.parseLong(new String(rawVersion, StandardCharsets.UTF_8)) : 0;
+            CachedProfile missing = current(profileSerializer.deserialize(values.get(i * 3 + 1)), version);
+            if (missing != null) {
+                reads.add(new SharedRead(missing, version));
+                continue;
+            }
+            reads.add(new SharedRead(current(profileSerializer.deserialize(values.get(i * 3)), version), version));
+        }
+        return reads;
+    }
+
+    private CachedProfile current(CachedProfile entry, long version) {
+        if (entry != null && entry.version() != version) {
+            versionRejected.increment();
+            return null;
+        }
+        return entry;
+    }
+
+    private void writeShared(Long userId, CachedProfile cached) {
+        try {
+            profileTemplate.opsForValue().set(KEY_PREFIX + userId, cached, redisTtl(cached));
+        } catch (Exception e) {
+            log.warn("Redis cache write failed for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void writeMissing(Long userId, long version) {
+        try {
+            redisTemplate.delete(KEY_PREFIX + userId);
+            profileTemplate.opsForValue().set(MISSING_PREFIX + userId, missing(version), settings.negativeTtl());
+        } catch (Exception e) {
+            log.warn("Redis negative cache write failed for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Bump the user's version and drop the profile from Redis and from the L1 of every node.
+     * Inside a transaction this happens after commit, so a reader cannot refill L2 from the
+     * old row afterwards.
+     */
+    public void invalidate(Long userId) {
+        afterCommit(() -> evict(userId));
+    }
+
+    /**
+     * Run after the current transaction commits (and not at all on rollback), or now without one
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void evict(Long userId) {
+        invalidateLocal(userId);
+        try {
+            bumpVersion(userId);
+            redisTemplate.delete(List.of(KEY_PREFIX + userId, MISSING_PREFIX + userId));
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, String.valueOf(userId));
+        } catch (Exception e) {
+            log.warn("Failed to invalidate cache for user {}: {}", userId, e.getMessage());
+            // Other nodes fall back to the L1 TTL
+        }
+    }
+
+    private void bumpVersion(Long userId) {
+        String versionKey = VERSION_PREFIX + userId;
+        redisTemplate.opsForValue().increment(versionKey);
+        // Outlives any entry tagged with an older version, so a reset to 0 cannot revive one
+        redisTemplate.expire(versionKey, versionTtl());
+    }
+
+    private long generation(Long userId) {
+        return generations.get(Math.floorMod(userId.hashCode(), GENERATION_STRIPES));
+    }
+
+    /**
+     * Bump the generation before dropping the entry: a put that checked the old generation is
+     * either followed by this invalidation or sees the bump on its re-check
+     */
+    private void invalidateLocal(Long userId) {
+        generations.incrementAndGet(Math.floorMod(userId.hashCode(), GENERATION_STRIPES));
+        local.invalidate(userId);
+    }
+
+    /**
+     * Cache a profile in L1 unless the user was evicted since the load started
+     */
+    private void putLocal(Long userId, UserResponse profile, long generation) {
+        if (generation(userId) != generation) {
+            return;
+        }
+        local.put(userId, profile);
+        if (generation(userId) != generation) {
+            local.invalidate(userId);
+        }
+    }
+
+    private Duration versionTtl() {
+        Duration longestEntry = settings.l2Ttl().plusMillis((long) (settings.l2Ttl().toMillis() * settings.l2TtlJitter()))
+            .plus(settings.staleGrace());
+        return longestEntry.multipliedBy(2);
+    }
+
+    /**
+     * A user was created: make the id known to every node's filter, bump the version and drop
+     * any negative entry. Inside a transaction this happens after commit; before it, a lookup
+     * would read no row and could cache the miss again. A lookup that read no row earlier may
+     * still write its negative entry after the delete, but it carries the old version and is
+     * rejected on read.
+     */
+    public void registered(Long userId) {
+        afterCommit(() -> {
+            idFilter.registered(userId);
+            try {
+                bumpVersion(userId);
+                redisTemplate.delete(MISSING_PREFIX + userId);
+            } catch (Exception e) {
+                log.warn("Failed to clear negative cache for user {}: {}", userId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Invalidation published by any node
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8).trim();
+        try {
+            invalidateLocal(Long.valueOf(body));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed cache invalidation: {}", body);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,169 @@
+package uth.edu.vn.lms_user_service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import uth.edu.vn.lms_user_service.repository.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory Bloom filter of existing user ids
+ *
+ * "No" answers are certain, so lookups of unknown ids skip Redis and Postgres entirely.
+ * The filter is rebuilt from Postgres periodically; ids registered in between are added on
+ * every node via {@link #REGISTRATION_CHANNEL}. Ids above the highest id seen at build
+ * time (minus a guard for out-of-order commits) are always answered "maybe", so a missed
+ * registration message can never hide a real user.
+ */
+@Component
+public class UserIdFilter implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(UserIdFilter.class);
+    public static final String REGISTRATION_CHANNEL = "user:id:registered";
+    private static final int REBUILD_BATCH_SIZE = 10_000;
+    // IDENTITY ids can commit out of order; the newest ids are never trusted to the filter
+    private static final long COMMIT_ORDER_GUARD = 1_000;
+
+    private record Snapshot(BloomFilter filter, long trustedMaxId, long ids) {}
+
+    private final UserRepository userRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final Set<Long> registeredSinceRebuild = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private final Counter falsePositives;
+    private volatile Snapshot snapshot;
+
+    @Value("${app.cache.user.id-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.user.id-filter.fpp:0.01}")
+    private double fpp;
+
+    public UserIdFilter(UserRepository userRepository, StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        Gauge.builder("user.id.filter.ids", this, f -> f.snapshot != null ? f.snapshot.ids() : 0)
+            .description("User ids loaded into the existence filter at the last rebuild")
+            .register(meterRegistry);
+        Gauge.builder("user.id.filter.bits", this, f -> f.snapshot != null ? f.snapshot.filter().bitSize() : 0)
+            .description("Size of the existence filter in bits")
+            .register(meterRegistry);
+        Gauge.builder("user.id.filter.expected.fpp", this, f -> f.snapshot != null ? f.snapshot.filter().expectedFpp() : 0)
+            .description("False-positive probability implied by the filter's bit density")
+            .register(meterRegistry);
+        this.falsePositives = Counter.builder("user.id.filter.false.positives")
+            .description("Ids the filter let through that turned out not to exist")
+            .register(meterRegistry);
+    }
+
+    /**
+     * False means the user certainly does not exist
+     */
+    public boolean mightExist(Long userId) {
+        Snapshot current = snapshot;
+        if (!enabled || current == null || userId > current.trustedMaxId()) {
+            return true;
+        }
+        return current.filter().mightContain(userId);
+    }
+
+    /**
+     * A lookup the filter passed found no user; counted as a false positive when the filter was trusted
+     */
+    public void recordMissing(Long userId) {
+        Snapshot current = snapshot;
+        if (enabled && current != null && userId <= current.trustedMaxId()) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * Add a newly registered user on this node and broadcast it to the others
+     */
+    public void registered(Long userId) {
+        add(userId);
+        try {
+            redisTemplate.convertAndSend(REGISTRATION_CHANNEL, String.valueOf(userId));
+        } catch (Exception e) {
+            // Other nodes still answer "maybe" for ids above their trusted max
+            log.warn("Failed to broadcast registration of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8).trim();
+        try {
+            add(Long.valueOf(body));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed user registration: {}", body);
+        }
+    }
+
+    private void add(Long userId) {
+        registeredSinceRebuild.add(userId);
+        Snapshot current = snapshot;
+        if (current != null) {
+            current.filter().put(userId);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled) {
+            Thread.ofVirtual().name("user-id-filter-build").start(this::rebuild);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.user.id-filter.rebuild-interval-ms:3600000}",
+               initialDelayString = "${app.cache.user.id-filter.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            registeredSinceRebuild.clear();
+            long expected = userRepository.count();
+            BloomFilter filter = BloomFilter.create(Math.max(1_000, expected + expected / 4), fpp);
+
+            long afterId = 0;
+            long ids = 0;
+            List<Long> batch;
+            do {
+                batch = userRepository.findIdsAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (Long id : batch) {
+                    filter.put(id);
+                }
+                ids += batch.size();
+                if (!batch.isEmpty()) {
+                    afterId = batch.get(batch.size() - 1);
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            snapshot = new Snapshot(filter, afterId - COMMIT_ORDER_GUARD, ids);
+            // Registrations seen while scanning; later ones go straight into the new filter
+            registeredSinceRebuild.forEach(filter::put);
+            log.info("User id filter rebuilt: {} ids, {} bits", ids, filter.bitSize());
+        } catch (Exception e) {
+            log.warn("User id filter rebuild failed, keeping previous filter: {}", e.getMessage());
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package uth.edu.vn.lms_user_service.cache;
+
+import uth.edu.vn.lms_user_service.dto.UserResponse;
+import uth.edu.vn.lms_user_service.entity.AuthProvider;
+import uth.edu.vn.lms_user_service.entity.Role;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary layout of {@link UserResponse}
+ *
+ * A bitmask marks the present nullable fields, the three flags share one byte, strings are
+ * length-prefixed UTF-8, enums are written by name (reordering constants stays compatible),
+ * dates as epoch day and timestamps as UTC epoch second plus nanos. Numbers are varints.
+ * Any change to these fields or to UserResponse needs a new {@link #SCHEMA_VERSION}.
+ */
+public final class UserResponseCodec implements CacheCodec<UserResponse> {
+
+    // 2: profile envelope carries the user version
+    public static final byte SCHEMA_VERSION = 2;
+
+    private static final int ID = 1;
+    private static final int USERNAME = 1 << 1;
+    private static final int EMAIL = 1 << 2;
+    private static final int FULL_NAME = 1 << 3;
+    private static final int PHONE = 1 << 4;
+    private static final int AVATAR = 1 << 5;
+    private static final int ROLE = 1 << 6;
+    private static final int PROVIDER = 1 << 7;
+    private static final int BIO = 1 << 8;
+    private static final int BIRTH_DATE = 1 << 9;
+    private static final int ADDRESS = 1 << 10;
+    private static final int CREATED_AT = 1 << 11;
+    private static final int UPDATED_AT = 1 << 12;
+
+    private static final int ACTIVE = 1;
+    private static final int EMAIL_VERIFIED = 1 << 1;
+    private static final int PROFILE_COMPLETED = 1 << 2;
+
+    @Override
+    public byte schemaVersion() {
+        return SCHEMA_VERSION;
+    }
+
+    @Override
+    public void write(UserResponse user, DataOutput out) throws IOException {
+        int present = (user.id() != null ? ID : 0)
+            | (user.username() != null ? USERNAME : 0)
+            | (user.email() != null ? EMAIL : 0)
+            | (user.fullName() != null ? FULL_NAME : 0)
+            | (user.phoneNumber() != null ? PHONE : 0)
+            | (user.avatarUrl() != null ? AVATAR : 0)
+            | (user.role() != null ? ROLE : 0)
+            | (user.authProvider() != null ? PROVIDER : 0)
+            | (user.bio() != null ? BIO : 0)
+            | (user.dateOfBirth() != null ? BIRTH_DATE : 0)
+            | (user.address() != null ? ADDRESS : 0)
+            | (user.createdAt() != null ? CREATED_AT : 0)
+            | (user.updatedAt() != null ? UPDATED_AT : 0);
+        writeVarLong(out, present);
+        out.writeByte((user.active() ? ACTIVE : 0)
+            | (user.emailVerified() ? EMAIL_VERIFIED : 0)
+            | (user.profileCompleted() ? PROFILE_COMPLETED : 0));
+
+        if (user.id() != null) writeVarLong(out, user.id());
+        if (user.username() != null) writeString(out, user.username());
+        if (user.email() != null) writeString(out, user.email());
+        if (user.fullName() != null) writeString(out, user.fullName());
+        if (user.phoneNumber() != null) writeString(out, user.phoneNumber());
+        if (user.avatarUrl() != null) writeString(out, user.avatarUrl());
+        if (user.role() != null) writeString(out, user.role().name());
+        if (user.authProvider() != null) writeString(out, user.authProvider().name());
+        if (user.bio() != null) writeString(out, user.bio());
+        if (user.dateOfBirth() != null) writeVarLong(out, user.dateOfBirth().toEpochDay());
+        if (user.address() != null) writeString(out, user.address());
+        if (user.createdAt() != null) writeTimestamp(out, user.createdAt());
+        if (user.updatedAt() != null) writeTimestamp(out, user.updatedAt());
+    }
+
+    @Override
+    public UserResponse read(DataInput in) throws IOException {
+        int present = (int) readVarLong(in);
+        int flags = in.readUnsignedByte();
+        try {
+            return new UserResponse(
+                (present & ID) != 0 ? readVarLong(in) : null,
+                (present & USERNAME) != 0 ? readString(in) : null,
+                (present & EMAIL) != 0 ? readString(in) : null,
+                (present & FULL_NAME) != 0 ? readString(in) : null,
+                (present & PHONE) != 0 ? readString(in) : null,
+                (present & AVATAR) != 0 ? readString(in) : null,
+                (present & ROLE) != 0 ? Role.valueOf(readString(in)) : null,
+                (present & PROVIDER) != 0 ? AuthProvider.valueOf(readString(in)) : null,
+                (flags & ACTIVE) != 0,
+                (flags & EMAIL_VERIFIED) != 0,
+                (flags & PROFILE_COMPLETED) != 0,
+                (present & BIO) != 0 ? readString(in) : null,
+                (present & BIRTH_DATE) != 0 ? LocalDate.ofEpochDay(readVarLong(in)) : null,
+                (present & ADDRESS) != 0 ? readString(in) : null,
+                (present & CREATED_AT) != 0 ? readTimestamp(in) : null,
+                (present & UPDATED_AT) != 0 ? readTimestamp(in) : null
+            );
+        } catch (IllegalArgumentException e) {
+            // Enum constant renamed or removed without a schema bump
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static void writeTimestamp(DataOutput out, LocalDateTime time) throws IOException {
+        writeVarLong(out, time.toEpochSecond(ZoneOffset.UTC));
+        writeVarLong(out, time.getNano());
+    }
+
+    private static LocalDateTime readTimestamp(DataInput in) throws IOException {
+        long seconds = readVarLong(in);
+        return LocalDateTime.ofEpochSecond(seconds, (int) readVarLong(in), ZoneOffset.UTC);
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, utf8.length);
+        out.write(utf8);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        byte[] utf8 = new byte[(int) readVarLong(in)];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // Unsigned LEB128 over the zig-zag encoding, so small negative values stay short too
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
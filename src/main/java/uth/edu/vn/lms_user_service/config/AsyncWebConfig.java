@@ -0,0 +1,57 @@
+package uth.edu.vn.lms_user_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+/**
+ * Async MVC configuration for streaming responses (StreamingResponseBody)
+ * Each stream blocks on socket writes while a slow client catches up, so streams run on
+ * virtual threads instead of occupying the shared application task pool.
+ *
+ * A handler can override the timeout of its own stream with the {@link #TIMEOUT_ATTRIBUTE}
+ * request attribute (a Duration, zero for none) and register a Runnable under
+ * {@link #COMPLETION_ATTRIBUTE} that runs when the stream ends for any reason, timeout included.
+ */
+@Configuration
+public class AsyncWebConfig implements WebMvcConfigurer {
+
+    public static final String TIMEOUT_ATTRIBUTE = AsyncWebConfig.class.getName() + ".timeout";
+    public static final String COMPLETION_ATTRIBUTE = AsyncWebConfig.class.getName() + ".completion";
+
+    @Value("${app.web.async.timeout:PT10M}")
+    private Duration asyncTimeout;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor()));
+        configurer.setDefaultTimeout(asyncTimeout.toMillis());
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                // Runs before the async context starts, so the servlet container picks up the override
+                if (request instanceof AsyncWebRequest asyncRequest
+                        && request.getAttribute(TIMEOUT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Duration timeout) {
+                    asyncRequest.setTimeout(timeout.toMillis());
+                }
+            }
+
+            @Override
+            public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                if (request.getAttribute(COMPLETION_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Runnable callback) {
+                    callback.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,43 @@
+package uth.edu.vn.lms_user_service.config;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+import uth.edu.vn.lms_user_service.dto.FieldSelection;
+
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Applies a {@code fields=} sparse fieldset to the serialized response
+ *
+ * Only responses annotated with {@code @JsonFilter(FieldSelection.FILTER_ID)} are narrowed;
+ * without fields= the default filter (JacksonConfig) writes every field, so the regular JSON
+ * contract is unchanged.
+ */
+@RestControllerAdvice
+public class FieldSelectionResponseAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+            return;
+        }
+        List<String> fields = FieldSelection.requested(servletRequest.getServletRequest().getParameter("fields"));
+        if (fields.isEmpty()) {
+            return;
+        }
+        bodyContainer.setFilters(new SimpleFilterProvider()
+            .addFilter(FieldSelection.FILTER_ID, SimpleBeanPropertyFilter.filterOutAllExcept(new HashSet<>(fields)))
+            .setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()));
+    }
+}
@@ -0,0 +1,94 @@
+package uth.edu.vn.lms_user_service.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.stereotype.Component;
+import uth.edu.vn.lms_user_service.document.ActivityLog;
+import uth.edu.vn.lms_user_service.document.ApiLatencyRollup;
+import uth.edu.vn.lms_user_service.document.CourseUserLastAccess;
+import uth.edu.vn.lms_user_service.document.UserSession;
+import uth.edu.vn.lms_user_service.document.VideoWatchProgress;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MongoDB indexes declared on the documents (@Indexed / @CompoundIndex)
+ *
+ * Spring Data MongoDB does not create annotated indexes by default, so they are built here,
+ * before any consumer or startup job writes. A failure (e.g. duplicates blocking a unique
+ * index) fails startup instead of leaving the collection unindexed.
+ *
+ * An index whose key pattern changes gets a new name (MongoDB rejects a new pattern under an
+ * existing name); the name it replaces is listed in OBSOLETE_INDEXES and dropped only after
+ * the new indexes are built.
+ */
+@Component
+public class MongoIndexInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(
+        ActivityLog.class,
+        ApiLatencyRollup.class,
+        CourseUserLastAccess.class,
+        UserSession.class,
+        VideoWatchProgress.class
+    );
+
+    private static final Map<Class<?>, Set<String>> OBSOLETE_INDEXES = Map.of(
+        ActivityLog.class, Set.of(
+            // Replaced by the *_timestamp_id_idx keyset indexes
+            "user_timestamp_idx", "session_timestamp_idx", "server_session_timestamp_idx",
+            "type_timestamp_idx", "course_user_timestamp_idx", "course_timestamp_idx",
+            // Single-field timestamp index, a prefix of timestamp_id_idx
+            "timestamp"
+        )
+    );
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoIndexInitializer(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext =
+            mongoTemplate.getConverter().getMappingContext();
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        for (Class<?> document : INDEXED_DOCUMENTS) {
+            IndexOperations indexOps = mongoTemplate.indexOps(document);
+            resolver.resolveIndexFor(document).forEach(index -> {
+                try {
+                    indexOps.ensureIndex(index);
+                } catch (RuntimeException e) {
+                    throw new IllegalStateException("Cannot create index " + index.getIndexOptions().get("name")
+                        + " on " + mongoTemplate.getCollectionName(document), e);
+                }
+            });
+        }
+        OBSOLETE_INDEXES.forEach(this::dropObsolete);
+        log.info("MongoDB indexes ensured for {} collections", INDEXED_DOCUMENTS.size());
+    }
+
+    private void dropObsolete(Class<?> document, Set<String> names) {
+        IndexOperations indexOps = mongoTemplate.indexOps(document);
+        for (IndexInfo index : indexOps.getIndexInfo()) {
+            if (names.contains(index.getName())) {
+                indexOps.dropIndex(index.getName());
+                log.info("Dropped obsolete index {} on {}", index.getName(), mongoTemplate.getCollectionName(document));
+            }
+        }
+    }
+}
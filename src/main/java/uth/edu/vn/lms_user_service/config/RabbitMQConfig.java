@@ -9,8 +9,17 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * RabbitMQ Configuration for Async Activity Logging
+ *
+ * Activities are routed by userId to one of {@code partitions} queues. Each partition queue has
+ * a single active consumer, so one node at a time sees all of a user's events, in order; the
+ * per-user in-memory state of the sessionizer and video watch tracking depends on this. When
+ * the active consumer goes away, RabbitMQ hands the partition to another node.
+ * The unpartitioned queue is still consumed so messages published before the upgrade drain.
  */
 @Configuration
 public class RabbitMQConfig {
@@ -24,6 +33,9 @@ public class RabbitMQConfig {
     @Value("${app.rabbitmq.routing-key.activity}")
     private String activityRoutingKey;
 
+    @Value("${app.rabbitmq.activity.partitions:4}")
+    private int activityPartitions;
+
     // Queue for activity logs
     @Bean
     public Queue activityQueue() {
@@ -46,6 +58,23 @@ public class RabbitMQConfig {
             .with(activityRoutingKey);
     }
 
+    // Per-user partition queues with their bindings
+    @Bean
+    public Declarables activityPartitionQueues(DirectExchange activityExchange) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (int partition = 0; partition < activityPartitions; partition++) {
+            Queue queue = QueueBuilder.durable(activityQueue + "." + partition)
+                .withArgument("x-message-ttl", 86400000) // 24 hours TTL
+                .singleActiveConsumer()
+                .build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue)
+                .to(activityExchange)
+                .with(activityRoutingKey + "." + partition));
+        }
+        return new Declarables(declarables);
+    }
+
     // JSON Message Converter
     @Bean
     public MessageConverter jsonMessageConverter() {
@@ -72,4 +101,24 @@ public class RabbitMQConfig {
     public String getActivityRoutingKey() {
         return activityRoutingKey;
     }
+
+    /**
+     * Routing key of the partition owning the user (events without a user go to partition 0)
+     */
+    public String activityRoutingKeyFor(Long userId) {
+        int partition = userId != null ? Math.floorMod(Long.hashCode(userId), activityPartitions) : 0;
+        return activityRoutingKey + "." + partition;
+    }
+
+    /**
+     * Queues consumed by ActivityConsumer: every partition plus the legacy unpartitioned queue
+     */
+    public String[] activityQueueNames() {
+        String[] names = new String[activityPartitions + 1];
+        names[0] = activityQueue;
+        for (int partition = 0; partition < activityPartitions; partition++) {
+            names[partition + 1] = activityQueue + "." + partition;
+        }
+        return names;
+    }
 }
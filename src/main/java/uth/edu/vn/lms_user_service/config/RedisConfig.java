@@ -9,19 +9,29 @@ import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import uth.edu.vn.lms_user_service.cache.CachedProfile;
+import uth.edu.vn.lms_user_service.cache.CachedProfileCodec;
+import uth.edu.vn.lms_user_service.cache.CodecRedisSerializer;
+import uth.edu.vn.lms_user_service.cache.UserCache;
+import uth.edu.vn.lms_user_service.cache.UserIdFilter;
+import uth.edu.vn.lms_user_service.service.UserDirectoryService;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
+import java.util.List;
 
 /**
  * Redis Configuration for Caching
- * Implements Cache-Aside pattern with JSON serialization
+ * Implements Cache-Aside pattern; UserCache profile entries use a compact schema-versioned
+ * binary codec, other values JSON serialization
  */
 @Configuration
 @EnableCaching
@@ -62,6 +72,21 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * Profile entries (UserCache L2) in the binary codec; JSON entries written before it are still read
+     */
+    @Bean
+    public RedisTemplate<String, CachedProfile> profileRedisTemplate(RedisConnectionFactory connectionFactory,
+                                                                     ObjectMapper objectMapper) {
+        RedisTemplate<String, CachedProfile> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(
+            new CodecRedisSerializer<>(new CachedProfileCodec(), CachedProfile.class, objectMapper));
+        template.afterPropertiesSet();
+        return template;
+    }
+
     @Bean
     public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
         GenericJackson2JsonRedisSerializer jsonSerializer = 
@@ -81,4 +106,22 @@ public class RedisConfig {
             .withCacheConfiguration(USER_CACHE, userCacheConfig)
             .build();
     }
+
+    /**
+     * Pub/sub subscriptions: profile invalidations evict the local L1 of every node,
+     * registrations are added to every node's user id filter, and both mark the
+     * teacher/student directory snapshots dirty
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       UserCache userCache, UserIdFilter userIdFilter,
+                                                                       UserDirectoryService userDirectoryService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(userCache, new ChannelTopic(UserCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(userIdFilter, new ChannelTopic(UserIdFilter.REGISTRATION_CHANNEL));
+        container.addMessageListener(userDirectoryService, List.of(
+            new ChannelTopic(UserCache.INVALIDATION_CHANNEL), new ChannelTopic(UserIdFilter.REGISTRATION_CHANNEL)));
+        return container;
+    }
 }
@@ -0,0 +1,40 @@
+package uth.edu.vn.lms_user_service.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import uth.edu.vn.lms_user_service.entity.UserChangeListener;
+
+/**
+ * Schema for the user change feed: the sequence, a unique index on users.change_seq, and a
+ * backfill of rows written before the column existed.
+ *
+ * Runs after Hibernate's schema update (which adds the column) and before any runner writes
+ * users. Every statement is idempotent, so concurrent node startups are safe.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class UserChangeSeqInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(UserChangeSeqInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserChangeSeqInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + UserChangeListener.SEQUENCE);
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_users_change_seq ON users (change_seq)");
+        int backfilled = jdbcTemplate.update(
+            "UPDATE users SET change_seq = nextval('" + UserChangeListener.SEQUENCE + "') WHERE change_seq IS NULL");
+        if (backfilled > 0) {
+            log.info("Assigned change sequence numbers to {} existing users", backfilled);
+        }
+    }
+}
@@ -6,19 +6,42 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uth.edu.vn.lms_user_service.dto.ActiveUsersResponse;
 import uth.edu.vn.lms_user_service.dto.ActivityRequest;
 import uth.edu.vn.lms_user_service.dto.ActivityResponse;
 import uth.edu.vn.lms_user_service.dto.ActivityStatsResponse;
+import uth.edu.vn.lms_user_service.dto.ApiLatencyResponse;
 import uth.edu.vn.lms_user_service.dto.ApiResponse;
 import uth.edu.vn.lms_user_service.dto.CourseActivityResponse;
+import uth.edu.vn.lms_user_service.dto.CursorPage;
+import uth.edu.vn.lms_user_service.dto.FunnelResponse;
+import uth.edu.vn.lms_user_service.dto.RetentionResponse;
+import uth.edu.vn.lms_user_service.dto.UserSessionResponse;
+import uth.edu.vn.lms_user_service.dto.VideoWatchResponse;
+import uth.edu.vn.lms_user_service.entity.ActivityType;
 import uth.edu.vn.lms_user_service.entity.User;
+import uth.edu.vn.lms_user_service.service.ActiveUserService;
 import uth.edu.vn.lms_user_service.service.ActivityService;
+import uth.edu.vn.lms_user_service.service.ActivityStreamService;
+import uth.edu.vn.lms_user_service.service.ApiLatencyService;
+import uth.edu.vn.lms_user_service.service.FunnelService;
+import uth.edu.vn.lms_user_service.service.LiveActivityBroadcaster;
+import uth.edu.vn.lms_user_service.service.SessionizerService;
+import uth.edu.vn.lms_user_service.service.VideoWatchService;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/v1/activities")
@@ -26,9 +49,26 @@ import java.util.List;
 public class ActivityController {
 
     private final ActivityService activityService;
+    private final ActivityStreamService activityStreamService;
+    private final LiveActivityBroadcaster liveActivityBroadcaster;
+    private final ApiLatencyService apiLatencyService;
+    private final FunnelService funnelService;
+    private final ActiveUserService activeUserService;
+    private final VideoWatchService videoWatchService;
+    private final SessionizerService sessionizerService;
 
-    public ActivityController(ActivityService activityService) {
+    public ActivityController(ActivityService activityService, ActivityStreamService activityStreamService,
+                              LiveActivityBroadcaster liveActivityBroadcaster, ApiLatencyService apiLatencyService,
+                              FunnelService funnelService, ActiveUserService activeUserService,
+                              VideoWatchService videoWatchService, SessionizerService sessionizerService) {
         this.activityService = activityService;
+        this.activityStreamService = activityStreamService;
+        this.liveActivityBroadcaster = liveActivityBroadcaster;
+        this.apiLatencyService = apiLatencyService;
+        this.funnelService = funnelService;
+        this.activeUserService = activeUserService;
+        this.videoWatchService = videoWatchService;
+        this.sessionizerService = sessionizerService;
     }
 
     /**
@@ -78,13 +118,50 @@ public class ActivityController {
     public ResponseEntity<ApiResponse<Page<ActivityResponse>>> getMyActivities(
             Authentication authentication,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String fields) {
+        
+        User user = (User) authentication.getPrincipal();
+        Page<ActivityResponse> activities = activityService.getUserActivities(user.getId(), page, size, fields);
+        return ResponseEntity.ok(ApiResponse.success("Activities retrieved", activities));
+    }
+
+    /**
+     * Get current user's activities with cursor pagination (no total count)
+     * Pass nextCursor from the previous response to fetch the next page
+     */
+    @GetMapping("/me/cursor")
+    @Operation(summary = "Get current user's activities (cursor pagination)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<ApiResponse<CursorPage<ActivityResponse>>> getMyActivitiesByCursor(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String fields) {
         
         User user = (User) authentication.getPrincipal();
-        Page<ActivityResponse> activities = activityService.getUserActivities(user.getId(), page, size);
+        CursorPage<ActivityResponse> activities = activityService.getUserActivitiesAfter(user.getId(), cursor, size, fields);
         return ResponseEntity.ok(ApiResponse.success("Activities retrieved", activities));
     }
 
+    /**
+     * Get current user's activities streamed from raw BSON (cursor pagination)
+     * Same JSON as /me/cursor without building per-row objects; allows larger pages
+     */
+    @GetMapping(value = "/me/raw", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Stream current user's activities (raw BSON pass-through)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<StreamingResponseBody> streamMyActivities(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(required = false) String fields) {
+        
+        User user = (User) authentication.getPrincipal();
+        StreamingResponseBody body = activityStreamService.streamUserActivities(user.getId(), cursor, size, fields);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     /**
      * Get activities by session ID
      */
@@ -98,18 +175,128 @@ public class ActivityController {
         return ResponseEntity.ok(ApiResponse.success("Session activities retrieved", activities));
     }
 
+    /**
+     * Stream a session timeline in chronological order (bounded, resumable)
+     * format=ndjson writes one activity per line; format=json writes the usual envelope
+     */
+    @GetMapping(value = "/session/{sessionId}/stream",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Stream activities for a specific session (NDJSON or JSON)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<StreamingResponseBody> streamSessionActivities(
+            @PathVariable String sessionId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "5000") int limit,
+            @RequestParam(required = false) String cursor) {
+        
+        boolean ndjson = !"json".equalsIgnoreCase(format);
+        StreamingResponseBody body = activityStreamService.streamSessionActivities(sessionId, ndjson, cursor, limit);
+        return ResponseEntity.ok()
+            .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+            .body(body);
+    }
+
     /**
      * Get activity statistics (Admin only)
+     * Computed asynchronously; if the request times out or the client goes away
+     * the remaining segments are cancelled.
      */
     @GetMapping("/stats")
     @Operation(summary = "Get activity statistics for a time period")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<ApiResponse<ActivityStatsResponse>> getStats(
+    public DeferredResult<ResponseEntity<ApiResponse<ActivityStatsResponse>>> getStats(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
         
-        ActivityStatsResponse stats = activityService.getStats(start, end);
-        return ResponseEntity.ok(ApiResponse.success("Statistics retrieved", stats));
+        DeferredResult<ResponseEntity<ApiResponse<ActivityStatsResponse>>> result = new DeferredResult<>();
+        CompletableFuture<ActivityStatsResponse> stats = activityService.getStatsAsync(start, end);
+        
+        result.onTimeout(() -> stats.cancel(true));
+        result.onError(e -> stats.cancel(true));
+        stats.whenComplete((response, ex) -> {
+            if (ex == null) {
+                result.setResult(ResponseEntity.ok(ApiResponse.success("Statistics retrieved", response)));
+            } else {
+                result.setErrorResult(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Get API latency percentiles and error rates from hourly rollups (Admin only)
+     */
+    @GetMapping("/latency")
+    @Operation(summary = "Get p50/p95/p99 latency and error rates for an API endpoint")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ApiLatencyResponse>> getApiLatency(
+            @RequestParam String endpoint,
+            @RequestParam(required = false) String method,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        
+        ApiLatencyResponse latency = apiLatencyService.getLatency(endpoint, method, start, end);
+        return ResponseEntity.ok(ApiResponse.success("API latency retrieved", latency));
+    }
+
+    /**
+     * Get a user's closed server-side sessions (Admin only)
+     */
+    @GetMapping("/user/{userId}/sessions")
+    @Operation(summary = "Get server-side session aggregates of a user")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<UserSessionResponse>>> getUserSessions(
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        
+        List<UserSessionResponse> sessions = sessionizerService.getUserSessions(userId, start, end);
+        return ResponseEntity.ok(ApiResponse.success("User sessions retrieved", sessions));
+    }
+
+    /**
+     * Get daily, weekly and monthly active users for each day of a range (Admin only)
+     */
+    @GetMapping("/active-users")
+    @Operation(summary = "Get DAU/WAU/MAU per day")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<ActiveUsersResponse>>> getActiveUsers(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end) {
+        
+        List<ActiveUsersResponse> activeUsers = activeUserService.getActiveUsers(start, end);
+        return ResponseEntity.ok(ApiResponse.success("Active users retrieved", activeUsers));
+    }
+
+    /**
+     * Get cohort retention by first-seen period (Admin only)
+     */
+    @GetMapping("/retention")
+    @Operation(summary = "Get cohort retention matrix")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<RetentionResponse>> getRetention(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam(defaultValue = "8") int periods,
+            @RequestParam(defaultValue = "7") int periodDays) {
+        
+        RetentionResponse retention = activeUserService.getRetention(start, periods, periodDays);
+        return ResponseEntity.ok(ApiResponse.success("Retention retrieved", retention));
+    }
+
+    /**
+     * Live activity dashboard (Admins and instructors)
+     * Pushes sliding-window metrics every second over Server-Sent Events
+     */
+    @GetMapping(value = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream live activity metrics (SSE)")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public SseEmitter streamLiveMetrics() {
+        return liveActivityBroadcaster.subscribe();
     }
 
     /**
@@ -121,12 +308,45 @@ public class ActivityController {
     public ResponseEntity<ApiResponse<Page<ActivityResponse>>> getUserActivities(
             @PathVariable Long userId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String fields) {
         
-        Page<ActivityResponse> activities = activityService.getUserActivities(userId, page, size);
+        Page<ActivityResponse> activities = activityService.getUserActivities(userId, page, size, fields);
         return ResponseEntity.ok(ApiResponse.success("User activities retrieved", activities));
     }
 
+    /**
+     * Get user activities by user ID with cursor pagination (Admin only)
+     */
+    @GetMapping("/user/{userId}/cursor")
+    @Operation(summary = "Get activities for a specific user (cursor pagination)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<ApiResponse<CursorPage<ActivityResponse>>> getUserActivitiesByCursor(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String fields) {
+        
+        CursorPage<ActivityResponse> activities = activityService.getUserActivitiesAfter(userId, cursor, size, fields);
+        return ResponseEntity.ok(ApiResponse.success("User activities retrieved", activities));
+    }
+
+    /**
+     * Get user activities by user ID streamed from raw BSON (Admin only)
+     */
+    @GetMapping(value = "/user/{userId}/raw", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Stream activities for a specific user (raw BSON pass-through)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<StreamingResponseBody> streamUserActivities(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(required = false) String fields) {
+        
+        StreamingResponseBody body = activityStreamService.streamUserActivities(userId, cursor, size, fields);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     /**
      * Get student activities for a specific course (For instructors)
      * Returns activities with Vietnamese formatted titles
@@ -139,13 +359,14 @@ public class ActivityController {
             @PathVariable Long studentId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @RequestParam(required = false) String activityType) {
+            @RequestParam(required = false) String activityType,
+            @RequestParam(required = false) String fields) {
         
         Page<CourseActivityResponse> activities;
         if (activityType != null && !activityType.isEmpty()) {
-            activities = activityService.getCourseStudentActivitiesByType(studentId, courseId, activityType, page, size);
+            activities = activityService.getCourseStudentActivitiesByType(studentId, courseId, activityType, page, size, fields);
         } else {
-            activities = activityService.getCourseStudentActivities(studentId, courseId, page, size);
+            activities = activityService.getCourseStudentActivities(studentId, courseId, page, size, fields);
         }
         return ResponseEntity.ok(ApiResponse.success("Student course activities retrieved", activities));
     }
@@ -160,12 +381,97 @@ public class ActivityController {
             @PathVariable Long courseId,
             @PathVariable Long studentId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String fields) {
+        
+        Page<CourseActivityResponse> activities = activityService.getAllCourseStudentActivities(studentId, courseId, page, size, fields);
+        return ResponseEntity.ok(ApiResponse.success("All student course activities retrieved", activities));
+    }
+
+    /**
+     * Get student activities for a specific course with cursor pagination (For instructors)
+     */
+    @GetMapping("/course/{courseId}/student/{studentId}/cursor")
+    @Operation(summary = "Get student activities for a specific course (cursor pagination)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<ApiResponse<CursorPage<CourseActivityResponse>>> getCourseStudentActivitiesByCursor(
+            @PathVariable Long courseId,
+            @PathVariable Long studentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String activityType,
+            @RequestParam(required = false) String fields) {
+        
+        CursorPage<CourseActivityResponse> activities =
+            activityService.getCourseStudentActivitiesAfter(studentId, courseId, activityType, cursor, size, fields);
+        return ResponseEntity.ok(ApiResponse.success("Student course activities retrieved", activities));
+    }
+
+    /**
+     * Get all student activities for a course with cursor pagination (no activity type filter)
+     */
+    @GetMapping("/course/{courseId}/student/{studentId}/all/cursor")
+    @Operation(summary = "Get all student activities for a specific course (cursor pagination)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<ApiResponse<CursorPage<CourseActivityResponse>>> getAllCourseStudentActivitiesByCursor(
+            @PathVariable Long courseId,
+            @PathVariable Long studentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String fields) {
         
-        Page<CourseActivityResponse> activities = activityService.getAllCourseStudentActivities(studentId, courseId, page, size);
+        CursorPage<CourseActivityResponse> activities =
+            activityService.getAllCourseStudentActivitiesAfter(studentId, courseId, cursor, size, fields);
         return ResponseEntity.ok(ApiResponse.success("All student course activities retrieved", activities));
     }
 
+    /**
+     * Get funnel conversion for a course (ordered activity types, e.g. COURSE_VIEW,COURSE_ENROLL,QUIZ_SUBMIT)
+     */
+    @GetMapping("/course/{courseId}/funnel")
+    @Operation(summary = "Get funnel conversion through ordered activity steps for a course")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public ResponseEntity<ApiResponse<FunnelResponse>> getCourseFunnel(
+            @PathVariable Long courseId,
+            @RequestParam List<ActivityType> steps,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        
+        FunnelResponse funnel = funnelService.getFunnel(courseId, steps, start, end);
+        return ResponseEntity.ok(ApiResponse.success("Funnel retrieved", funnel));
+    }
+
+    /**
+     * Get watch coverage and watch time of every student on a course video (Admins and instructors)
+     */
+    @GetMapping("/course/{courseId}/videos/{videoId}/watch")
+    @Operation(summary = "Get per-student watch progress for a course video")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public ResponseEntity<ApiResponse<List<VideoWatchResponse>>> getVideoWatch(
+            @PathVariable Long courseId,
+            @PathVariable String videoId) {
+        
+        List<VideoWatchResponse> watch = videoWatchService.getVideoWatch(courseId, videoId);
+        return ResponseEntity.ok(ApiResponse.success("Video watch progress retrieved", watch));
+    }
+
+    /**
+     * Get watch coverage and watch time of a student on every video of a course (Admins and instructors)
+     */
+    @GetMapping("/course/{courseId}/student/{studentId}/videos")
+    @Operation(summary = "Get a student's watch progress for all course videos")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public ResponseEntity<ApiResponse<List<VideoWatchResponse>>> getStudentVideoWatch(
+            @PathVariable Long courseId,
+            @PathVariable Long studentId) {
+        
+        List<VideoWatchResponse> watch = videoWatchService.getStudentVideoWatch(courseId, studentId);
+        return ResponseEntity.ok(ApiResponse.success("Student video watch progress retrieved", watch));
+    }
+
     /**
      * Get last access time for all students in a course
      * Returns a map of studentId -> last access timestamp
@@ -0,0 +1,73 @@
+package uth.edu.vn.lms_user_service.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uth.edu.vn.lms_user_service.service.ActivityExportService;
+import uth.edu.vn.lms_user_service.service.ActivityExportService.ExportFilter;
+import uth.edu.vn.lms_user_service.service.ActivityExportService.Format;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Controller cho Admin xuất dữ liệu hoạt động (CSV/NDJSON)
+ * Chỉ ADMIN mới có quyền truy cập
+ */
+@RestController
+@RequestMapping("/api/admin/activities")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Admin", description = "API quản lý users dành cho Admin")
+@SecurityRequirement(name = "bearerAuth")
+public class ActivityExportController {
+
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final ActivityExportService activityExportService;
+
+    public ActivityExportController(ActivityExportService activityExportService) {
+        this.activityExportService = activityExportService;
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Xuất dữ liệu hoạt động theo khoảng thời gian (CSV hoặc NDJSON, có thể nén gzip)")
+    public ResponseEntity<StreamingResponseBody> exportActivities(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) Long courseId,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String activityType,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "true") boolean gzip,
+            @RequestParam(required = false) String cursor,
+            HttpServletRequest httpRequest) {
+        
+        Format exportFormat = "ndjson".equalsIgnoreCase(format) ? Format.NDJSON : Format.CSV;
+        ExportFilter filter = new ExportFilter(
+            start.toInstant(ZoneOffset.UTC), end.toInstant(ZoneOffset.UTC), courseId, userId, activityType);
+        StreamingResponseBody body = activityExportService.export(filter, exportFormat, gzip, cursor, httpRequest);
+
+        String fileName = "activities-" + start.format(FILE_DATE) + "-" + end.format(FILE_DATE)
+            + (exportFormat == Format.CSV ? ".csv" : ".ndjson") + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+            : exportFormat == Format.CSV ? MediaType.parseMediaType("text/csv") : MediaType.APPLICATION_NDJSON;
+
+        return ResponseEntity.ok()
+            .contentType(contentType)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+            .body(body);
+    }
+}
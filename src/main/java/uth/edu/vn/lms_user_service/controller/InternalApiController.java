@@ -4,10 +4,17 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import uth.edu.vn.lms_user_service.dto.ApiResponse;
+import uth.edu.vn.lms_user_service.dto.UserChangesResponse;
 import uth.edu.vn.lms_user_service.dto.UserResponse;
+import uth.edu.vn.lms_user_service.entity.Role;
+import uth.edu.vn.lms_user_service.exception.ApiException;
+import uth.edu.vn.lms_user_service.service.UserDirectoryService;
 import uth.edu.vn.lms_user_service.service.UserService;
 
 import java.util.List;
@@ -23,10 +30,14 @@ import java.util.List;
 @SecurityRequirement(name = "bearerAuth")
 public class InternalApiController {
 
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+
     private final UserService userService;
+    private final UserDirectoryService userDirectoryService;
 
-    public InternalApiController(UserService userService) {
+    public InternalApiController(UserService userService, UserDirectoryService userDirectoryService) {
         this.userService = userService;
+        this.userDirectoryService = userDirectoryService;
     }
 
     @GetMapping("/{id}")
@@ -54,27 +65,89 @@ public class InternalApiController {
         return ResponseEntity.ok(ApiResponse.success("Users retrieved successfully", users));
     }
 
+    @GetMapping("/changes")
+    @Operation(summary = "Get user changes since a token",
+               description = "Internal API for replicas: users created, updated or disabled after the change token "
+                   + "(0 or omitted for a full sync), oldest first. Store nextToken and pass it as since next time")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Changes retrieved"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid token or limit"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Not authenticated")
+    })
+    public ResponseEntity<ApiResponse<UserChangesResponse>> getChanges(
+            @RequestParam(defaultValue = "0") String since,
+            @RequestParam(defaultValue = "500") int limit) {
+        long token;
+        try {
+            token = Long.parseLong(since);
+        } catch (NumberFormatException e) {
+            throw ApiException.badRequest("Invalid change token: " + since);
+        }
+        UserChangesResponse changes = userService.getChangesSince(token, limit);
+        return ResponseEntity.ok(ApiResponse.success("Changes retrieved successfully", changes));
+    }
+
     @GetMapping("/teachers")
     @Operation(summary = "Get all active teachers", 
-               description = "Internal API to get all users with TEACHER role")
+               description = "Internal API to get all users with TEACHER role. Served from a precomputed snapshot "
+                   + "with an ETag (send If-None-Match for 304); pass after/limit for keyset pages ordered by id")
     @ApiResponses(value = {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Teachers retrieved"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "304", description = "Directory unchanged"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Not authenticated")
     })
-    public ResponseEntity<ApiResponse<List<UserResponse>>> getAllTeachers() {
-        List<UserResponse> teachers = userService.getAllTeachers();
-        return ResponseEntity.ok(ApiResponse.success("Teachers retrieved successfully", teachers));
+    public ResponseEntity<byte[]> getAllTeachers(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return directory(Role.TEACHER, after, limit, ifNoneMatch);
     }
 
     @GetMapping("/students")
     @Operation(summary = "Get all active students", 
-               description = "Internal API to get all users with STUDENT role")
+               description = "Internal API to get all users with STUDENT role. Served from a precomputed snapshot "
+                   + "with an ETag (send If-None-Match for 304); pass after/limit for keyset pages ordered by id")
     @ApiResponses(value = {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Students retrieved"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "304", description = "Directory unchanged"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Not authenticated")
     })
-    public ResponseEntity<ApiResponse<List<UserResponse>>> getAllStudents() {
-        List<UserResponse> students = userService.getAllStudents();
-        return ResponseEntity.ok(ApiResponse.success("Students retrieved successfully", students));
+    public ResponseEntity<byte[]> getAllStudents(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return directory(Role.STUDENT, after, limit, ifNoneMatch);
+    }
+
+    /**
+     * Pre-serialized directory body, or 304 when the client already holds this version
+     */
+    private ResponseEntity<byte[]> directory(Role role, Long after, Integer limit, String ifNoneMatch) {
+        UserDirectoryService.Body body = after == null && limit == null
+            ? userDirectoryService.fullBody(role)
+            : userDirectoryService.page(role, after, limit != null ? limit : DEFAULT_PAGE_LIMIT);
+        if (matches(ifNoneMatch, body.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(body.etag()).build();
+        }
+        return ResponseEntity.ok()
+            .eTag(body.etag())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(body.bytes());
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
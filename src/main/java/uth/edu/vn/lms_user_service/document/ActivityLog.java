@@ -8,20 +8,34 @@ import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 
 /**
  * MongoDB Document for Activity Logs
  * Replaces the JPA UserActivity entity for better scalability
+ *
+ * Indexes behind keyset pages end in _id, matching the (timestamp, _id) seek order, so a page
+ * is one bounded index scan with no in-memory sort. They are built (and the indexes they
+ * replace dropped) by MongoIndexInitializer.
  */
 @Document(collection = "activity_logs")
 @CompoundIndexes({
-    @CompoundIndex(name = "user_timestamp_idx", def = "{'userId': 1, 'timestamp': -1}"),
-    @CompoundIndex(name = "session_timestamp_idx", def = "{'sessionId': 1, 'timestamp': 1}"),
-    @CompoundIndex(name = "type_timestamp_idx", def = "{'activityType': 1, 'timestamp': -1}")
+    @CompoundIndex(name = "user_timestamp_id_idx", def = "{'userId': 1, 'timestamp': -1, '_id': -1}"),
+    @CompoundIndex(name = "session_timestamp_id_idx", def = "{'sessionId': 1, 'timestamp': 1, '_id': 1}"),
+    @CompoundIndex(name = "server_session_timestamp_id_idx", def = "{'serverSessionId': 1, 'timestamp': 1, '_id': 1}", sparse = true),
+    @CompoundIndex(name = "timestamp_id_idx", def = "{'timestamp': 1, '_id': 1}"),
+    @CompoundIndex(name = "type_timestamp_id_idx", def = "{'activityType': 1, 'timestamp': -1, '_id': -1}"),
+    @CompoundIndex(name = "course_user_timestamp_id_idx", def = "{'courseId': 1, 'userId': 1, 'timestamp': -1, '_id': -1}"),
+    @CompoundIndex(name = "course_timestamp_id_idx", def = "{'courseId': 1, 'timestamp': -1, '_id': -1}")
 })
 public class ActivityLog {
 
+    // Metadata keys promoted to typed top-level fields at ingestion
+    public static final List<String> PROMOTED_ID_KEYS = List.of(
+        "courseId", "sectionId", "moduleId", "lessonId", "quizId", "assignmentId"
+    );
+
     @Id
     private String id;
 
@@ -33,6 +47,10 @@ public class ActivityLog {
     @Field("sessionId")
     private String sessionId;
 
+    // Assigned at ingestion from the user's inactivity gaps (see SessionizerService)
+    @Field("serverSessionId")
+    private String serverSessionId;
+
     @Field("activityType")
     private String activityType;
 
@@ -66,6 +84,25 @@ public class ActivityLog {
     @Field("metadata")
     private Map<String, Object> metadata;
 
+    // Typed copies of the IDs in metadata (see PROMOTED_ID_KEYS), so course queries can use an index
+    @Field("courseId")
+    private Long courseId;
+
+    @Field("sectionId")
+    private Long sectionId;
+
+    @Field("moduleId")
+    private Long moduleId;
+
+    @Field("lessonId")
+    private Long lessonId;
+
+    @Field("quizId")
+    private Long quizId;
+
+    @Field("assignmentId")
+    private Long assignmentId;
+
     @Field("ipAddress")
     private String ipAddress;
 
@@ -87,7 +124,7 @@ public class ActivityLog {
     @Field("screenHeight")
     private Integer screenHeight;
 
-    @Indexed
+    // Range scans use timestamp_id_idx (timestamp is its prefix)
     @Field("timestamp")
     private Instant timestamp;
 
@@ -117,6 +154,11 @@ public class ActivityLog {
             return this;
         }
 
+        public Builder serverSessionId(String serverSessionId) {
+            log.serverSessionId = serverSessionId;
+            return this;
+        }
+
         public Builder activityType(String activityType) {
             log.activityType = activityType;
             return this;
@@ -218,10 +260,44 @@ public class ActivityLog {
         }
 
         public ActivityLog build() {
+            log.promoteMetadataIds();
             return log;
         }
     }
 
+    /**
+     * Read a numeric ID from metadata; the frontend sends IDs either as numbers or strings
+     */
+    public Long metadataAsLong(String key) {
+        if (metadata == null) {
+            return null;
+        }
+        Object value = metadata.get(key);
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof String str && !str.isBlank()) {
+            try {
+                return Long.parseLong(str.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copy known IDs from metadata into their typed fields (existing typed values win)
+     */
+    public void promoteMetadataIds() {
+        if (courseId == null) courseId = metadataAsLong("courseId");
+        if (sectionId == null) sectionId = metadataAsLong("sectionId");
+        if (moduleId == null) moduleId = metadataAsLong("moduleId");
+        if (lessonId == null) lessonId = metadataAsLong("lessonId");
+        if (quizId == null) quizId = metadataAsLong("quizId");
+        if (assignmentId == null) assignmentId = metadataAsLong("assignmentId");
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
@@ -247,6 +323,14 @@ public class ActivityLog {
         this.sessionId = sessionId;
     }
 
+    public String getServerSessionId() {
+        return serverSessionId;
+    }
+
+    public void setServerSessionId(String serverSessionId) {
+        this.serverSessionId = serverSessionId;
+    }
+
     public String getActivityType() {
         return activityType;
     }
@@ -406,4 +490,52 @@ public class ActivityLog {
     public void setDurationMs(Long durationMs) {
         this.durationMs = durationMs;
     }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Long courseId) {
+        this.courseId = courseId;
+    }
+
+    public Long getSectionId() {
+        return sectionId;
+    }
+
+    public void setSectionId(Long sectionId) {
+        this.sectionId = sectionId;
+    }
+
+    public Long getModuleId() {
+        return moduleId;
+    }
+
+    public void setModuleId(Long moduleId) {
+        this.moduleId = moduleId;
+    }
+
+    public Long getLessonId() {
+        return lessonId;
+    }
+
+    public void setLessonId(Long lessonId) {
+        this.lessonId = lessonId;
+    }
+
+    public Long getQuizId() {
+        return quizId;
+    }
+
+    public void setQuizId(Long quizId) {
+        this.quizId = quizId;
+    }
+
+    public Long getAssignmentId() {
+        return assignmentId;
+    }
+
+    public void setAssignmentId(Long assignmentId) {
+        this.assignmentId = assignmentId;
+    }
 }
@@ -0,0 +1,137 @@
+package uth.edu.vn.lms_user_service.document;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * MongoDB Document for hourly API latency rollups
+ * One document per (endpoint, httpMethod, hour); every node adds its counts with $inc,
+ * so documents from all nodes merge into the same histogram.
+ */
+@Document(collection = "api_latency_rollups")
+@CompoundIndex(name = "endpoint_method_hour_idx", def = "{'endpoint': 1, 'httpMethod': 1, 'hour': 1}")
+public class ApiLatencyRollup {
+
+    @Id
+    private String id;
+
+    @Field("endpoint")
+    private String endpoint;
+
+    @Field("httpMethod")
+    private String httpMethod;
+
+    @Field("hour")
+    private Instant hour;
+
+    @Field("count")
+    private long count;
+
+    @Field("errorCount")
+    private long errorCount;
+
+    @Field("clientErrorCount")
+    private long clientErrorCount;
+
+    @Field("sumMs")
+    private long sumMs;
+
+    @Field("maxMs")
+    private long maxMs;
+
+    // Sparse LatencyHistogram counts: bucket index -> count
+    @Field("buckets")
+    private Map<String, Long> buckets;
+
+    public ApiLatencyRollup() {}
+
+    public static String idFor(String endpoint, String httpMethod, Instant hour) {
+        return httpMethod + " " + endpoint + "@" + hour.getEpochSecond();
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    public void setHttpMethod(String httpMethod) {
+        this.httpMethod = httpMethod;
+    }
+
+    public Instant getHour() {
+        return hour;
+    }
+
+    public void setHour(Instant hour) {
+        this.hour = hour;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public void setErrorCount(long errorCount) {
+        this.errorCount = errorCount;
+    }
+
+    public long getClientErrorCount() {
+        return clientErrorCount;
+    }
+
+    public void setClientErrorCount(long clientErrorCount) {
+        this.clientErrorCount = clientErrorCount;
+    }
+
+    public long getSumMs() {
+        return sumMs;
+    }
+
+    public void setSumMs(long sumMs) {
+        this.sumMs = sumMs;
+    }
+
+    public long getMaxMs() {
+        return maxMs;
+    }
+
+    public void setMaxMs(long maxMs) {
+        this.maxMs = maxMs;
+    }
+
+    public Map<String, Long> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(Map<String, Long> buckets) {
+        this.buckets = buckets;
+    }
+}
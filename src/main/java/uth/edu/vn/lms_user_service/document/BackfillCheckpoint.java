@@ -0,0 +1,127 @@
+package uth.edu.vn.lms_user_service.document;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+
+/**
+ * MongoDB Document for resumable backfill progress
+ * One document per (job, partition); a partition covers the _id range [lowerId, upperId)
+ * (open-ended when upperId is null) and lastId is the last document already converted, so a restarted job continues after it.
+ */
+@Document(collection = "backfill_checkpoints")
+public class BackfillCheckpoint {
+
+    @Id
+    private String id;
+
+    @Field("job")
+    private String job;
+
+    @Field("partition")
+    private int partition;
+
+    @Field("lowerId")
+    private String lowerId;
+
+    @Field("upperId")
+    private String upperId;
+
+    @Field("lastId")
+    private String lastId;
+
+    @Field("processed")
+    private long processed;
+
+    @Field("completed")
+    private boolean completed;
+
+    @Field("updatedAt")
+    private Instant updatedAt;
+
+    public BackfillCheckpoint() {}
+
+    public BackfillCheckpoint(String job, int partition, String lowerId, String upperId) {
+        this.id = job + ":" + partition;
+        this.job = job;
+        this.partition = partition;
+        this.lowerId = lowerId;
+        this.upperId = upperId;
+        this.updatedAt = Instant.now();
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getJob() {
+        return job;
+    }
+
+    public void setJob(String job) {
+        this.job = job;
+    }
+
+    public int getPartition() {
+        return partition;
+    }
+
+    public void setPartition(int partition) {
+        this.partition = partition;
+    }
+
+    public String getLowerId() {
+        return lowerId;
+    }
+
+    public void setLowerId(String lowerId) {
+        this.lowerId = lowerId;
+    }
+
+    public String getUpperId() {
+        return upperId;
+    }
+
+    public void setUpperId(String upperId) {
+        this.upperId = upperId;
+    }
+
+    public String getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(String lastId) {
+        this.lastId = lastId;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(long processed) {
+        this.processed = processed;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
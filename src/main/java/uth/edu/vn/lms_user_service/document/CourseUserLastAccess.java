@@ -0,0 +1,64 @@
+package uth.edu.vn.lms_user_service.document;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+
+/**
+ * MongoDB Document for the course last-access read model
+ * One document per (courseId, userId), upserted with $max on every course activity
+ */
+@Document(collection = "course_user_last_access")
+@CompoundIndex(name = "course_user_idx", def = "{'courseId': 1, 'userId': 1}", unique = true)
+public class CourseUserLastAccess {
+
+    @Id
+    private String id;
+
+    @Field("courseId")
+    private Long courseId;
+
+    @Field("userId")
+    private Long userId;
+
+    @Field("lastAccessAt")
+    private Instant lastAccessAt;
+
+    public CourseUserLastAccess() {}
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Long courseId) {
+        this.courseId = courseId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Instant getLastAccessAt() {
+        return lastAccessAt;
+    }
+
+    public void setLastAccessAt(Instant lastAccessAt) {
+        this.lastAccessAt = lastAccessAt;
+    }
+}
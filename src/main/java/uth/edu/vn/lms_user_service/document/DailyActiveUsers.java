@@ -0,0 +1,80 @@
+package uth.edu.vn.lms_user_service.document;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+
+/**
+ * MongoDB Document for the set of users active on one day (Vietnam time)
+ * Users are stored as a serialized RoaringBitmap of userIds; updates merge with
+ * optimistic locking on {@code version}, so nodes flushing the same day never lose users.
+ */
+@Document(collection = "daily_active_users")
+public class DailyActiveUsers {
+
+    // ISO date (yyyy-MM-dd); lexical order is date order
+    @Id
+    private String id;
+
+    @Field("bitmap")
+    private byte[] bitmap;
+
+    @Field("userCount")
+    private long userCount;
+
+    @Field("updatedAt")
+    private Instant updatedAt;
+
+    @Version
+    private Long version;
+
+    public DailyActiveUsers() {}
+
+    public DailyActiveUsers(String id) {
+        this.id = id;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public byte[] getBitmap() {
+        return bitmap;
+    }
+
+    public void setBitmap(byte[] bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    public long getUserCount() {
+        return userCount;
+    }
+
+    public void setUserCount(long userCount) {
+        this.userCount = userCount;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,127 @@
+package uth.edu.vn.lms_user_service.document;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MongoDB Document for a server-side session aggregate
+ * Written when the sessionizer closes a session; the id is the serverSessionId stamped on
+ * the session's activity_logs, so re-emitting a session overwrites instead of duplicating.
+ */
+@Document(collection = "user_sessions")
+@CompoundIndexes({
+    @CompoundIndex(name = "user_started_idx", def = "{'userId': 1, 'startedAt': -1}")
+})
+public class UserSession {
+
+    @Id
+    private String id;
+
+    @Field("userId")
+    private Long userId;
+
+    @Indexed
+    @Field("startedAt")
+    private Instant startedAt;
+
+    @Field("endedAt")
+    private Instant endedAt;
+
+    @Field("durationMs")
+    private long durationMs;
+
+    @Field("eventCount")
+    private long eventCount;
+
+    @Field("activityCounts")
+    private Map<String, Long> activityCounts;
+
+    // Client session ids seen during the session (bounded)
+    @Field("clientSessionIds")
+    private List<String> clientSessionIds;
+
+    // Courses touched during the session (bounded)
+    @Field("courseIds")
+    private List<Long> courseIds;
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getEndedAt() {
+        return endedAt;
+    }
+
+    public void setEndedAt(Instant endedAt) {
+        this.endedAt = endedAt;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public void setEventCount(long eventCount) {
+        this.eventCount = eventCount;
+    }
+
+    public Map<String, Long> getActivityCounts() {
+        return activityCounts;
+    }
+
+    public void setActivityCounts(Map<String, Long> activityCounts) {
+        this.activityCounts = activityCounts;
+    }
+
+    public List<String> getClientSessionIds() {
+        return clientSessionIds;
+    }
+
+    public void setClientSessionIds(List<String> clientSessionIds) {
+        this.clientSessionIds = clientSessionIds;
+    }
+
+    public List<Long> getCourseIds() {
+        return courseIds;
+    }
+
+    public void setCourseIds(List<Long> courseIds) {
+        this.courseIds = courseIds;
+    }
+}
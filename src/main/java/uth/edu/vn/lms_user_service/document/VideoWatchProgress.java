@@ -0,0 +1,149 @@
+package uth.edu.vn.lms_user_service.document;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+
+/**
+ * MongoDB Document for how much of a video a user has watched
+ * One document per (userId, videoId). Watched positions are kept as a merged
+ * {@link uth.edu.vn.lms_user_service.util.IntervalSet} in whole seconds.
+ */
+@Document(collection = "video_watch_progress")
+@CompoundIndexes({
+    @CompoundIndex(name = "course_video_idx", def = "{'courseId': 1, 'videoId': 1}"),
+    @CompoundIndex(name = "course_user_idx", def = "{'courseId': 1, 'userId': 1}")
+})
+public class VideoWatchProgress {
+
+    @Id
+    private String id;
+
+    @Field("userId")
+    private Long userId;
+
+    @Field("videoId")
+    private String videoId;
+
+    @Field("courseId")
+    private Long courseId;
+
+    // Flat [start, end) pairs in seconds, sorted and non-overlapping
+    @Field("intervals")
+    private int[] intervals;
+
+    // Seconds of the video covered at least once
+    @Field("watchedSeconds")
+    private long watchedSeconds;
+
+    // Seconds of playback including re-watching
+    @Field("totalWatchSeconds")
+    private long totalWatchSeconds;
+
+    @Field("videoDurationSeconds")
+    private Integer videoDurationSeconds;
+
+    @Field("lastWatchedAt")
+    private Instant lastWatchedAt;
+
+    @Version
+    private Long version;
+
+    public VideoWatchProgress() {}
+
+    public VideoWatchProgress(Long userId, String videoId) {
+        this.id = idFor(userId, videoId);
+        this.userId = userId;
+        this.videoId = videoId;
+    }
+
+    public static String idFor(Long userId, String videoId) {
+        return userId + ":" + videoId;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getVideoId() {
+        return videoId;
+    }
+
+    public void setVideoId(String videoId) {
+        this.videoId = videoId;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Long courseId) {
+        this.courseId = courseId;
+    }
+
+    public int[] getIntervals() {
+        return intervals;
+    }
+
+    public void setIntervals(int[] intervals) {
+        this.intervals = intervals;
+    }
+
+    public long getWatchedSeconds() {
+        return watchedSeconds;
+    }
+
+    public void setWatchedSeconds(long watchedSeconds) {
+        this.watchedSeconds = watchedSeconds;
+    }
+
+    public long getTotalWatchSeconds() {
+        return totalWatchSeconds;
+    }
+
+    public void setTotalWatchSeconds(long totalWatchSeconds) {
+        this.totalWatchSeconds = totalWatchSeconds;
+    }
+
+    public Integer getVideoDurationSeconds() {
+        return videoDurationSeconds;
+    }
+
+    public void setVideoDurationSeconds(Integer videoDurationSeconds) {
+        this.videoDurationSeconds = videoDurationSeconds;
+    }
+
+    public Instant getLastWatchedAt() {
+        return lastWatchedAt;
+    }
+
+    public void setLastWatchedAt(Instant lastWatchedAt) {
+        this.lastWatchedAt = lastWatchedAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
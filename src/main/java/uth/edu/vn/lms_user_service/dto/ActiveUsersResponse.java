@@ -0,0 +1,14 @@
+package uth.edu.vn.lms_user_service.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for rolling active user counts ending on a day (Vietnam time)
+ * wau / mau cover the 7 / 30 days ending on {@code date}, inclusive
+ */
+public record ActiveUsersResponse(
+    LocalDate date,
+    long dau,
+    long wau,
+    long mau
+) {}
@@ -0,0 +1,45 @@
+package uth.edu.vn.lms_user_service.dto;
+
+import uth.edu.vn.lms_user_service.document.ActivityLog;
+import uth.edu.vn.lms_user_service.exception.ApiException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position in an activity timeline ordered by (timestamp, _id)
+ * Encoded as an opaque URL-safe token for clients
+ */
+public record ActivityCursor(Instant timestamp, String id) {
+
+    public static ActivityCursor of(ActivityLog log) {
+        return new ActivityCursor(log.getTimestamp(), log.getId());
+    }
+
+    public String encode() {
+        String raw = timestamp.toEpochMilli() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a client token; null or blank means "start from the beginning"
+     */
+    public static ActivityCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            Instant timestamp = Instant.ofEpochMilli(Long.parseLong(raw.substring(0, separator)));
+            String id = raw.substring(separator + 1);
+            if (id.isEmpty()) {
+                throw new IllegalArgumentException("missing id");
+            }
+            return new ActivityCursor(timestamp, id);
+        } catch (RuntimeException e) {
+            throw ApiException.badRequest("Invalid cursor");
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package uth.edu.vn.lms_user_service.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import uth.edu.vn.lms_user_service.document.ActivityLog;
@@ -7,12 +8,15 @@ import uth.edu.vn.lms_user_service.entity.UserActivity;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.List;
 import java.util.Map;
 
 /**
  * DTO for activity response
  * Supports both MongoDB document and legacy JPA entity
+ * Only the fields of a sparse fieldset are serialized when fields= is requested
  */
+@JsonFilter(FieldSelection.FILTER_ID)
 public record ActivityResponse(
     String id,
     Long userId,
@@ -29,6 +33,26 @@ public record ActivityResponse(
 ) {
     private static final ZoneId VIETNAM_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
     private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Response field -> ActivityLog fields it is read from (drives the MongoDB projection)
+    public static final Map<String, List<String>> DOCUMENT_FIELDS = Map.ofEntries(
+        Map.entry("id", List.of("_id")),
+        Map.entry("userId", List.of("userId")),
+        Map.entry("sessionId", List.of("sessionId")),
+        Map.entry("activityType", List.of("activityType")),
+        Map.entry("action", List.of("action")),
+        Map.entry("pageUrl", List.of("pageUrl")),
+        Map.entry("pageTitle", List.of("pageTitle")),
+        Map.entry("metadata", List.of("metadata")),
+        Map.entry("timestamp", List.of("timestamp")),
+        Map.entry("durationMs", List.of("durationMs")),
+        Map.entry("ipAddress", List.of("ipAddress")),
+        Map.entry("userAgent", List.of("userAgent"))
+    );
+
+    public static FieldSelection fields(String fields) {
+        return FieldSelection.parse(fields, DOCUMENT_FIELDS);
+    }
     
     /**
      * Create from MongoDB ActivityLog document
@@ -51,6 +75,28 @@ public record ActivityResponse(
             log.getUserAgent()
         );
     }
+
+    /**
+     * Create from a projected document, keeping only the selected fields
+     */
+    public static ActivityResponse fromDocument(ActivityLog log, FieldSelection fields) {
+        return new ActivityResponse(
+            fields.includes("id") ? log.getId() : null,
+            fields.includes("userId") ? log.getUserId() : null,
+            fields.includes("sessionId") ? log.getSessionId() : null,
+            fields.includes("activityType") ? log.getActivityType() : null,
+            fields.includes("action") ? log.getAction() : null,
+            fields.includes("pageUrl") ? log.getPageUrl() : null,
+            fields.includes("pageTitle") ? log.getPageTitle() : null,
+            fields.includes("metadata") ? mapToJson(log.getMetadata()) : null,
+            fields.includes("timestamp") && log.getTimestamp() != null
+                ? LocalDateTime.ofInstant(log.getTimestamp(), VIETNAM_ZONE)
+                : null,
+            fields.includes("durationMs") ? log.getDurationMs() : null,
+            fields.includes("ipAddress") ? log.getIpAddress() : null,
+            fields.includes("userAgent") ? log.getUserAgent() : null
+        );
+    }
     
     /**
      * Create from JPA UserActivity entity (legacy support)
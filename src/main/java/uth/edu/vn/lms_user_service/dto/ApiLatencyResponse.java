@@ -0,0 +1,17 @@
+package uth.edu.vn.lms_user_service.dto;
+
+/**
+ * DTO for API latency percentiles and error rates over a time range
+ */
+public record ApiLatencyResponse(
+    String endpoint,
+    String httpMethod,
+    long requestCount,
+    double errorRate,
+    double clientErrorRate,
+    double avgMs,
+    long p50Ms,
+    long p95Ms,
+    long p99Ms,
+    long maxMs
+) {}
@@ -1,16 +1,20 @@
 package uth.edu.vn.lms_user_service.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import uth.edu.vn.lms_user_service.document.ActivityLog;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
 /**
  * DTO for course-specific activity response with Vietnamese formatted titles
+ * Only the fields of a sparse fieldset are serialized when fields= is requested
  */
+@JsonFilter(FieldSelection.FILTER_ID)
 public record CourseActivityResponse(
     String id,
     Long userId,
@@ -29,6 +33,49 @@ public record CourseActivityResponse(
     private static final ZoneId VIETNAM_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm 'ngày' dd/MM/yyyy", new Locale("vi", "VN"));
 
+    // Response field -> ActivityLog fields it is derived from (drives the MongoDB projection)
+    public static final Map<String, List<String>> DOCUMENT_FIELDS = Map.ofEntries(
+        Map.entry("id", List.of("_id")),
+        Map.entry("userId", List.of("userId")),
+        Map.entry("activityType", List.of("activityType")),
+        Map.entry("action", List.of("action")),
+        Map.entry("formattedTitle", List.of("activityType", "metadata", "pageTitle", "timestamp")),
+        Map.entry("resourceType", List.of("activityType")),
+        Map.entry("resourceName", List.of("metadata", "pageTitle")),
+        Map.entry("resourceId", List.of("metadata")),
+        Map.entry("pageUrl", List.of("pageUrl")),
+        Map.entry("timestamp", List.of("timestamp")),
+        Map.entry("timestampFormatted", List.of("timestamp")),
+        Map.entry("durationMs", List.of("durationMs")),
+        Map.entry("metadata", List.of("metadata"))
+    );
+
+    public static FieldSelection fields(String fields) {
+        return FieldSelection.parse(fields, DOCUMENT_FIELDS);
+    }
+
+    /**
+     * Create from a projected document, keeping only the selected fields
+     */
+    public static CourseActivityResponse fromDocument(ActivityLog log, FieldSelection fields) {
+        CourseActivityResponse full = fromDocument(log);
+        return new CourseActivityResponse(
+            fields.includes("id") ? full.id() : null,
+            fields.includes("userId") ? full.userId() : null,
+            fields.includes("activityType") ? full.activityType() : null,
+            fields.includes("action") ? full.action() : null,
+            fields.includes("formattedTitle") ? full.formattedTitle() : null,
+            fields.includes("resourceType") ? full.resourceType() : null,
+            fields.includes("resourceName") ? full.resourceName() : null,
+            fields.includes("resourceId") ? full.resourceId() : null,
+            fields.includes("pageUrl") ? full.pageUrl() : null,
+            fields.includes("timestamp") ? full.timestamp() : null,
+            fields.includes("timestampFormatted") ? full.timestampFormatted() : null,
+            fields.includes("durationMs") ? full.durationMs() : null,
+            fields.includes("metadata") ? full.metadata() : null
+        );
+    }
+
     /**
      * Create from MongoDB ActivityLog document
      */
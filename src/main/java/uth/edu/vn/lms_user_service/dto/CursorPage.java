@@ -0,0 +1,18 @@
+package uth.edu.vn.lms_user_service.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset (cursor) page - no total count, pass nextCursor back to fetch the following page
+ */
+public record CursorPage<T>(
+    List<T> items,
+    int size,
+    boolean hasNext,
+    String nextCursor
+) {
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(items.stream().map(mapper).toList(), size, hasNext, nextCursor);
+    }
+}
@@ -0,0 +1,79 @@
+package uth.edu.vn.lms_user_service.dto;
+
+import uth.edu.vn.lms_user_service.exception.ApiException;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sparse fieldset requested through a {@code fields=} query parameter.
+ *
+ * Each response type declares which document fields every response field is built from;
+ * the selection resolves that into the MongoDB projection, so only the requested
+ * response fields are read from the database and serialized.
+ *
+ * Response types annotated with {@code @JsonFilter(FieldSelection.FILTER_ID)} serialize every
+ * field by default; when {@code fields=} is present only the selected ones are written
+ * (see FieldSelectionResponseAdvice).
+ */
+public final class FieldSelection {
+
+    public static final String FILTER_ID = "fieldSelection";
+
+    private final Set<String> responseFields; // null = every response field
+    private final Set<String> documentFields;
+
+    private FieldSelection(Set<String> responseFields, Set<String> documentFields) {
+        this.responseFields = responseFields;
+        this.documentFields = documentFields;
+    }
+
+    /**
+     * Parse a comma separated list of response fields; blank selects all of them
+     *
+     * @param mapping response field -> document fields it is derived from
+     */
+    public static FieldSelection parse(String fields, Map<String, List<String>> mapping) {
+        if (fields == null || fields.isBlank()) {
+            Set<String> documentFields = new LinkedHashSet<>();
+            mapping.values().forEach(documentFields::addAll);
+            return new FieldSelection(null, documentFields);
+        }
+
+        Set<String> responseFields = new LinkedHashSet<>();
+        Set<String> documentFields = new LinkedHashSet<>();
+        for (String field : requested(fields)) {
+            List<String> source = mapping.get(field);
+            if (source == null) {
+                throw ApiException.badRequest("Unknown field: " + field);
+            }
+            responseFields.add(field);
+            documentFields.addAll(source);
+        }
+        return new FieldSelection(responseFields, documentFields);
+    }
+
+    /**
+     * Response field names listed in a {@code fields=} value, empty when it is blank
+     */
+    public static List<String> requested(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(fields.split(",")).map(String::trim).filter(f -> !f.isEmpty()).toList();
+    }
+
+    public boolean includes(String responseField) {
+        return responseFields == null || responseFields.contains(responseField);
+    }
+
+    /**
+     * Document fields to project (_id is always returned by MongoDB)
+     */
+    public Set<String> documentFields() {
+        return documentFields;
+    }
+}
@@ -0,0 +1,23 @@
+package uth.edu.vn.lms_user_service.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO for course funnel conversion
+ * A user counts for a step once they performed every step up to it, in order, within the window
+ */
+public record FunnelResponse(
+    Long courseId,
+    LocalDateTime start,
+    LocalDateTime end,
+    List<Step> steps
+) {
+    public record Step(
+        int index,
+        String activityType,
+        long users,
+        double conversionFromPrevious,
+        double conversionFromFirst
+    ) {}
+}
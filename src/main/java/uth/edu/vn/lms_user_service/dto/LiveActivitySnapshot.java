@@ -0,0 +1,17 @@
+package uth.edu.vn.lms_user_service.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * DTO for live activity dashboard metrics pushed over SSE
+ */
+public record LiveActivitySnapshot(
+    Instant timestamp,
+    int windowSeconds,
+    double eventsPerSecond,
+    Map<String, Double> eventsPerSecondByType,
+    long activeUsers,
+    int activeUsersWindowMinutes,
+    Map<String, Long> topPages
+) {}
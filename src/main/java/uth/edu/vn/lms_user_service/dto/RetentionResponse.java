@@ -0,0 +1,21 @@
+package uth.edu.vn.lms_user_service.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO for a cohort retention matrix
+ * A cohort is the users first seen during one period; retention[k] is the share of the
+ * cohort active k periods later (retention[0] is always 1.0)
+ */
+public record RetentionResponse(
+    LocalDate start,
+    int periodDays,
+    List<Cohort> cohorts
+) {
+    public record Cohort(
+        LocalDate periodStart,
+        long users,
+        List<Double> retention
+    ) {}
+}
@@ -0,0 +1,16 @@
+package uth.edu.vn.lms_user_service.dto;
+
+import java.util.List;
+
+/**
+ * Page of the user change feed, ordered by change token
+ *
+ * @param users     users created, updated or disabled after the requested token (current state)
+ * @param nextToken pass as {@code since} on the next call; unchanged when nothing new is visible yet
+ * @param hasMore   more changes are ready now, call again without waiting
+ */
+public record UserChangesResponse(
+    List<UserResponse> users,
+    String nextToken,
+    boolean hasMore
+) {}
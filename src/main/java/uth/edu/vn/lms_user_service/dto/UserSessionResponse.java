@@ -0,0 +1,39 @@
+package uth.edu.vn.lms_user_service.dto;
+
+import uth.edu.vn.lms_user_service.document.UserSession;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO for a closed server-side session (times in Vietnam local time)
+ */
+public record UserSessionResponse(
+    String id,
+    Long userId,
+    LocalDateTime startedAt,
+    LocalDateTime endedAt,
+    long durationMs,
+    long eventCount,
+    Map<String, Long> activityCounts,
+    List<String> clientSessionIds,
+    List<Long> courseIds
+) {
+    private static final ZoneId VIETNAM_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+
+    public static UserSessionResponse fromDocument(UserSession session) {
+        return new UserSessionResponse(
+            session.getId(),
+            session.getUserId(),
+            LocalDateTime.ofInstant(session.getStartedAt(), VIETNAM_ZONE),
+            LocalDateTime.ofInstant(session.getEndedAt(), VIETNAM_ZONE),
+            session.getDurationMs(),
+            session.getEventCount(),
+            session.getActivityCounts(),
+            session.getClientSessionIds(),
+            session.getCourseIds()
+        );
+    }
+}
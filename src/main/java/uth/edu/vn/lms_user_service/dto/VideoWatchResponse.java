@@ -0,0 +1,40 @@
+package uth.edu.vn.lms_user_service.dto;
+
+import uth.edu.vn.lms_user_service.document.VideoWatchProgress;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * DTO for a student's watch progress on one video
+ * coveragePercent is null when the video duration was never reported by the player
+ */
+public record VideoWatchResponse(
+    Long userId,
+    String videoId,
+    long watchedSeconds,
+    long totalWatchSeconds,
+    Integer videoDurationSeconds,
+    Double coveragePercent,
+    LocalDateTime lastWatchedAt
+) {
+    private static final ZoneId VIETNAM_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+
+    public static VideoWatchResponse fromDocument(VideoWatchProgress progress) {
+        Integer duration = progress.getVideoDurationSeconds();
+        Double coverage = duration != null && duration > 0
+            ? Math.min(100.0, progress.getWatchedSeconds() * 100.0 / duration)
+            : null;
+        return new VideoWatchResponse(
+            progress.getUserId(),
+            progress.getVideoId(),
+            progress.getWatchedSeconds(),
+            progress.getTotalWatchSeconds(),
+            duration,
+            coverage,
+            progress.getLastWatchedAt() != null
+                ? LocalDateTime.ofInstant(progress.getLastWatchedAt(), VIETNAM_ZONE)
+                : null
+        );
+    }
+}
@@ -12,6 +12,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserChangeListener.class)
 public class User implements UserDetails {
 
     @Id
@@ -84,6 +85,10 @@ public class User implements UserDetails {
     @Column(name = "last_login_at")
     private LocalDateTime lastLoginAt;
 
+    // Position in the change feed (sequence users_change_seq), reassigned on every insert and update
+    @Column(name = "change_seq")
+    private Long changeSeq;
+
     // Constructors
     public User() {}
 
@@ -214,6 +219,14 @@ public class User implements UserDetails {
         return updatedAt;
     }
 
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
     public String getAvatarUrl() {
         return avatarUrl;
     }
@@ -0,0 +1,30 @@
+package uth.edu.vn.lms_user_service.entity;
+
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stamps every inserted or updated user with the next value of {@code users_change_seq}
+ *
+ * A Spring bean (Hibernate resolves entity listeners through the application context), so the
+ * sequence is read with the JdbcTemplate on the transaction's own connection.
+ */
+@Component
+public class UserChangeListener {
+
+    public static final String SEQUENCE = "users_change_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserChangeListener(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void assignChangeSeq(User user) {
+        user.setChangeSeq(jdbcTemplate.queryForObject("SELECT nextval('" + SEQUENCE + "')", Long.class));
+    }
+}
@@ -7,6 +7,12 @@ import org.springframework.stereotype.Component;
 import uth.edu.vn.lms_user_service.document.ActivityLog;
 import uth.edu.vn.lms_user_service.dto.ActivityMessage;
 import uth.edu.vn.lms_user_service.repository.ActivityLogRepository;
+import uth.edu.vn.lms_user_service.service.ActiveUserService;
+import uth.edu.vn.lms_user_service.service.ApiLatencyService;
+import uth.edu.vn.lms_user_service.service.CourseLastAccessService;
+import uth.edu.vn.lms_user_service.service.LiveActivityMetrics;
+import uth.edu.vn.lms_user_service.service.SessionizerService;
+import uth.edu.vn.lms_user_service.service.VideoWatchService;
 
 /**
  * RabbitMQ Consumer for Activity Logs
@@ -18,15 +24,30 @@ public class ActivityConsumer {
     private static final Logger log = LoggerFactory.getLogger(ActivityConsumer.class);
 
     private final ActivityLogRepository activityLogRepository;
+    private final LiveActivityMetrics liveActivityMetrics;
+    private final ApiLatencyService apiLatencyService;
+    private final CourseLastAccessService courseLastAccessService;
+    private final ActiveUserService activeUserService;
+    private final VideoWatchService videoWatchService;
+    private final SessionizerService sessionizerService;
 
-    public ActivityConsumer(ActivityLogRepository activityLogRepository) {
+    public ActivityConsumer(ActivityLogRepository activityLogRepository, LiveActivityMetrics liveActivityMetrics,
+                            ApiLatencyService apiLatencyService, CourseLastAccessService courseLastAccessService,
+                            ActiveUserService activeUserService, VideoWatchService videoWatchService,
+                            SessionizerService sessionizerService) {
         this.activityLogRepository = activityLogRepository;
+        this.liveActivityMetrics = liveActivityMetrics;
+        this.apiLatencyService = apiLatencyService;
+        this.courseLastAccessService = courseLastAccessService;
+        this.activeUserService = activeUserService;
+        this.videoWatchService = videoWatchService;
+        this.sessionizerService = sessionizerService;
     }
 
     /**
-     * Listen to activity queue and save to MongoDB
+     * Listen to the activity partition queues and save to MongoDB
      */
-    @RabbitListener(queues = "${app.rabbitmq.queue.activity}")
+    @RabbitListener(queues = "#{rabbitMQConfig.activityQueueNames()}")
     public void handleActivity(ActivityMessage message) {
         try {
             var activityLog = ActivityLog.builder()
@@ -54,8 +75,26 @@ public class ActivityConsumer {
                 .durationMs(message.durationMs())
                 .build();
 
+            // Stamp the server-side session before the document is written
+            sessionizerService.assign(activityLog);
+
             activityLogRepository.save(activityLog);
             
+            // Feed the live dashboard counters (lock-free, never blocks ingestion)
+            liveActivityMetrics.record(message.activityType(), message.userId(), message.pageUrl());
+            
+            // Aggregate API timings into hourly latency histograms
+            apiLatencyService.record(message);
+            
+            // Maintain the course last-access read model
+            courseLastAccessService.recordAccess(activityLog);
+            
+            // Mark the user active for the day (DAU/WAU/MAU bitmaps)
+            activeUserService.record(activityLog.getUserId(), activityLog.getTimestamp());
+            
+            // Turn video player events into watched intervals
+            videoWatchService.record(activityLog);
+            
             log.debug("Saved activity to MongoDB: {} for user: {}", 
                 message.activityType(), message.userId());
                 
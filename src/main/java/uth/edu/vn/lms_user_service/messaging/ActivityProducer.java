@@ -5,11 +5,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import uth.edu.vn.lms_user_service.config.RabbitMQConfig;
 import uth.edu.vn.lms_user_service.dto.ActivityMessage;
 
 /**
  * RabbitMQ Producer for Activity Logs
- * Sends activity messages to queue for async processing
+ * Sends activity messages to queue for async processing, routed to the user's partition
  */
 @Service
 public class ActivityProducer {
@@ -17,15 +18,14 @@ public class ActivityProducer {
     private static final Logger log = LoggerFactory.getLogger(ActivityProducer.class);
 
     private final RabbitTemplate rabbitTemplate;
+    private final RabbitMQConfig rabbitMQConfig;
 
     @Value("${app.rabbitmq.exchange.activity}")
     private String exchange;
 
-    @Value("${app.rabbitmq.routing-key.activity}")
-    private String routingKey;
-
-    public ActivityProducer(RabbitTemplate rabbitTemplate) {
+    public ActivityProducer(RabbitTemplate rabbitTemplate, RabbitMQConfig rabbitMQConfig) {
         this.rabbitTemplate = rabbitTemplate;
+        this.rabbitMQConfig = rabbitMQConfig;
     }
 
     /**
@@ -33,7 +33,7 @@ public class ActivityProducer {
      */
     public void sendActivity(ActivityMessage message) {
         try {
-            rabbitTemplate.convertAndSend(exchange, routingKey, message);
+            rabbitTemplate.convertAndSend(exchange, rabbitMQConfig.activityRoutingKeyFor(message.userId()), message);
             log.debug("Sent activity to queue: {} for user: {}", 
                 message.activityType(), message.userId());
         } catch (Exception e) {
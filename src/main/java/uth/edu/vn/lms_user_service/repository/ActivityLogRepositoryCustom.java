@@ -0,0 +1,63 @@
+package uth.edu.vn.lms_user_service.repository;
+
+import org.bson.RawBsonDocument;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.Criteria;
+import uth.edu.vn.lms_user_service.document.ActivityLog;
+import uth.edu.vn.lms_user_service.dto.ActivityCursor;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Custom MongoDB queries for Activity Logs that need MongoTemplate
+ * (projections, cursors, aggregation) instead of derived repository methods
+ */
+public interface ActivityLogRepositoryCustom {
+
+    /**
+     * Stream activities with timestamp in [start, end), loading only the fields used by statistics
+     */
+    void streamForStats(Instant start, Instant end, Consumer<ActivityLog> consumer);
+
+    /**
+     * Offset page of activities matching the criteria, newest first, reading only the given
+     * fields (all fields when {@code fields} is null or empty)
+     */
+    Page<ActivityLog> findPage(Criteria criteria, Pageable pageable, Collection<String> fields);
+
+    /**
+     * Keyset page: activities matching the criteria that come after the cursor in
+     * (timestamp, _id) order. Returns up to {@code limit} documents and runs no count query.
+     * Only the given fields are read (all fields when {@code fields} is null or empty).
+     */
+    List<ActivityLog> findAfter(Criteria criteria, ActivityCursor cursor, boolean ascending, int limit,
+                                Collection<String> fields);
+
+    /**
+     * Cursor over the same keyset range as {@link #findAfter}, handing each document to the
+     * consumer as undecoded BSON. Stops when the consumer returns false or after {@code limit}
+     * documents (no limit when 0).
+     */
+    void streamRawAfter(Criteria criteria, ActivityCursor cursor, boolean ascending, int limit,
+                        Collection<String> fields, Predicate<RawBsonDocument> consumer);
+
+    /**
+     * Stream every activity matching the criteria after the cursor in ascending (timestamp, _id)
+     * order, preferring a secondary so long exports stay off the primary that serves ingestion.
+     * Stops when the consumer returns false.
+     */
+    void streamForExport(Criteria criteria, ActivityCursor cursor, Predicate<ActivityLog> consumer);
+
+    /**
+     * Stream a course's activities of the given types in [start, end), grouped by user and in
+     * time order within each user (served by course_user_timestamp_id_idx). Only userId,
+     * activityType and timestamp are loaded.
+     */
+    void streamForFunnel(Long courseId, Instant start, Instant end, Collection<String> activityTypes,
+                         Consumer<ActivityLog> consumer);
+}
@@ -0,0 +1,158 @@
+package uth.edu.vn.lms_user_service.repository;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.support.PageableExecutionUtils;
+import uth.edu.vn.lms_user_service.document.ActivityLog;
+import uth.edu.vn.lms_user_service.dto.ActivityCursor;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * MongoTemplate-backed implementation of {@link ActivityLogRepositoryCustom}
+ */
+public class ActivityLogRepositoryImpl implements ActivityLogRepositoryCustom {
+
+    private static final int STATS_BATCH_SIZE = 2000;
+    private static final int RAW_BATCH_SIZE = 500;
+    private static final int EXPORT_BATCH_SIZE = 1000;
+    private static final int FUNNEL_BATCH_SIZE = 2000;
+
+    private final MongoTemplate mongoTemplate;
+
+    public ActivityLogRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void streamForStats(Instant start, Instant end, Consumer<ActivityLog> consumer) {
+        Query query = new Query(Criteria.where("timestamp").gte(start).lt(end))
+            .cursorBatchSize(STATS_BATCH_SIZE);
+        query.fields().include("userId", "sessionId", "activityType", "pageUrl", "timestamp");
+
+        try (Stream<ActivityLog> stream = mongoTemplate.stream(query, ActivityLog.class)) {
+            stream.forEach(consumer);
+        }
+    }
+
+    @Override
+    public Page<ActivityLog> findPage(Criteria criteria, Pageable pageable, Collection<String> fields) {
+        Query query = new Query(criteria)
+            .with(Sort.by(Sort.Direction.DESC, "timestamp"))
+            .with(pageable);
+        project(query, fields);
+        List<ActivityLog> content = mongoTemplate.find(query, ActivityLog.class);
+        return PageableExecutionUtils.getPage(content, pageable,
+            () -> mongoTemplate.count(new Query(criteria), ActivityLog.class));
+    }
+
+    @Override
+    public List<ActivityLog> findAfter(Criteria criteria, ActivityCursor cursor, boolean ascending, int limit,
+                                       Collection<String> fields) {
+        Query query = seekQuery(criteria, cursor, ascending, fields).limit(limit);
+        return mongoTemplate.find(query, ActivityLog.class);
+    }
+
+    @Override
+    public void streamRawAfter(Criteria criteria, ActivityCursor cursor, boolean ascending, int limit,
+                               Collection<String> fields, Predicate<RawBsonDocument> consumer) {
+        Query query = seekQuery(criteria, cursor, ascending, fields);
+        mongoTemplate.execute(ActivityLog.class, collection -> {
+            FindIterable<RawBsonDocument> find = collection.withDocumentClass(RawBsonDocument.class)
+                .find(query.getQueryObject())
+                .sort(query.getSortObject())
+                .projection(query.getFieldsObject())
+                .batchSize(limit > 0 ? Math.min(limit, RAW_BATCH_SIZE) : RAW_BATCH_SIZE);
+            if (limit > 0) {
+                find.limit(limit);
+            }
+            try (MongoCursor<RawBsonDocument> documents = find.iterator()) {
+                while (documents.hasNext()) {
+                    if (!consumer.test(documents.next())) {
+                        break;
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void streamForExport(Criteria criteria, ActivityCursor cursor, Predicate<ActivityLog> consumer) {
+        Query query = seekQuery(criteria, cursor, true, null)
+            .cursorBatchSize(EXPORT_BATCH_SIZE)
+            .withReadPreference(ReadPreference.secondaryPreferred());
+
+        try (Stream<ActivityLog> stream = mongoTemplate.stream(query, ActivityLog.class)) {
+            var iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                if (!consumer.test(iterator.next())) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void streamForFunnel(Long courseId, Instant start, Instant end, Collection<String> activityTypes,
+                                Consumer<ActivityLog> consumer) {
+        // userId descending + timestamp ascending walks the (courseId, userId, timestamp desc) index backwards
+        Query query = new Query(Criteria.where("courseId").is(courseId)
+                .and("timestamp").gte(start).lt(end)
+                .and("activityType").in(activityTypes))
+            .with(Sort.by(Sort.Direction.DESC, "userId").and(Sort.by(Sort.Direction.ASC, "timestamp")))
+            .cursorBatchSize(FUNNEL_BATCH_SIZE);
+        query.fields().include("userId", "activityType", "timestamp");
+
+        try (Stream<ActivityLog> stream = mongoTemplate.stream(query, ActivityLog.class)) {
+            stream.forEach(consumer);
+        }
+    }
+
+    private static Query seekQuery(Criteria criteria, ActivityCursor cursor, boolean ascending, Collection<String> fields) {
+        Criteria filter = cursor == null ? criteria : new Criteria().andOperator(criteria, seekCriteria(cursor, ascending));
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Query query = new Query(filter)
+            .with(Sort.by(direction, "timestamp").and(Sort.by(direction, "_id")));
+        project(query, fields);
+        return query;
+    }
+
+    private static void project(Query query, Collection<String> fields) {
+        if (fields != null && !fields.isEmpty()) {
+            // timestamp is always needed to build the next cursor
+            query.fields().include(fields.toArray(String[]::new)).include("timestamp");
+        }
+    }
+
+    /**
+     * (timestamp, _id) strictly after the cursor: seeks on the timestamp index instead of skipping
+     */
+    static Criteria seekCriteria(ActivityCursor cursor, boolean ascending) {
+        Object id = ObjectId.isValid(cursor.id()) ? new ObjectId(cursor.id()) : cursor.id();
+        if (ascending) {
+            return new Criteria().orOperator(
+                Criteria.where("timestamp").gt(cursor.timestamp()),
+                Criteria.where("timestamp").is(cursor.timestamp()).and("_id").gt(id)
+            );
+        }
+        return new Criteria().orOperator(
+            Criteria.where("timestamp").lt(cursor.timestamp()),
+            Criteria.where("timestamp").is(cursor.timestamp()).and("_id").lt(id)
+        );
+    }
+}
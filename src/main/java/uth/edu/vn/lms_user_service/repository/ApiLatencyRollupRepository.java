@@ -0,0 +1,24 @@
+package uth.edu.vn.lms_user_service.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+import uth.edu.vn.lms_user_service.document.ApiLatencyRollup;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * MongoDB Repository for hourly API latency rollups
+ */
+@Repository
+public interface ApiLatencyRollupRepository extends MongoRepository<ApiLatencyRollup, String> {
+
+    // Hourly rollups for an endpoint (all methods) with hour in [start, end)
+    @Query("{ 'endpoint': ?0, 'hour': { $gte: ?1, $lt: ?2 } }")
+    List<ApiLatencyRollup> findByEndpointAndHourRange(String endpoint, Instant start, Instant end);
+
+    // Hourly rollups for an endpoint and HTTP method with hour in [start, end)
+    @Query("{ 'endpoint': ?0, 'httpMethod': ?1, 'hour': { $gte: ?2, $lt: ?3 } }")
+    List<ApiLatencyRollup> findByEndpointAndHttpMethodAndHourRange(String endpoint, String httpMethod, Instant start, Instant end);
+}
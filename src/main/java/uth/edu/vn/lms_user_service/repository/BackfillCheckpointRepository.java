@@ -0,0 +1,16 @@
+package uth.edu.vn.lms_user_service.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import uth.edu.vn.lms_user_service.document.BackfillCheckpoint;
+
+import java.util.List;
+
+/**
+ * MongoDB Repository for backfill job checkpoints
+ */
+@Repository
+public interface BackfillCheckpointRepository extends MongoRepository<BackfillCheckpoint, String> {
+
+    List<BackfillCheckpoint> findByJobOrderByPartitionAsc(String job);
+}
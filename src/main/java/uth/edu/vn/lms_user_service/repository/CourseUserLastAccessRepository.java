@@ -0,0 +1,17 @@
+package uth.edu.vn.lms_user_service.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import uth.edu.vn.lms_user_service.document.CourseUserLastAccess;
+
+import java.util.List;
+
+/**
+ * MongoDB Repository for the course last-access read model
+ */
+@Repository
+public interface CourseUserLastAccessRepository extends MongoRepository<CourseUserLastAccess, String> {
+
+    // Served by course_user_idx
+    List<CourseUserLastAccess> findByCourseId(Long courseId);
+}
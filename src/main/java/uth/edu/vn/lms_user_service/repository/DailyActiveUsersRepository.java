@@ -0,0 +1,22 @@
+package uth.edu.vn.lms_user_service.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+import uth.edu.vn.lms_user_service.document.DailyActiveUsers;
+
+import java.util.List;
+
+/**
+ * MongoDB Repository for per-day active user bitmaps
+ */
+@Repository
+public interface DailyActiveUsersRepository extends MongoRepository<DailyActiveUsers, String> {
+
+    // Days in [startDay, endDay) - ids are ISO dates
+    @Query("{ '_id': { $gte: ?0, $lt: ?1 } }")
+    List<DailyActiveUsers> findByDayRange(String startDay, String endDay);
+
+    @Query("{ '_id': { $lt: ?0 } }")
+    List<DailyActiveUsers> findBefore(String day);
+}
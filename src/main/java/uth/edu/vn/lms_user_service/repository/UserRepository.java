@@ -1,12 +1,16 @@
 package uth.edu.vn.lms_user_service.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import uth.edu.vn.lms_user_service.entity.Role;
 import uth.edu.vn.lms_user_service.entity.User;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,8 +39,31 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> searchByKeyword(@Param("keyword") String keyword);
 
     // Internal API queries (for inter-service communication)
+    // Own read-only transaction: the batch lookup calling it runs without one
+    @Transactional(readOnly = true)
     List<User> findByIdIn(List<Long> ids);
 
+    // Keyset scan of all ids (existence filter rebuild)
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
     @Query("SELECT u FROM User u WHERE u.role = :role AND u.enabled = true")
     List<User> findActiveUsersByRole(@Param("role") Role role);
+
+    // Cache warm-up: most recently logged-in users first
+    @Query("SELECT u.id FROM User u WHERE u.enabled = true AND u.lastLoginAt >= :since ORDER BY u.lastLoginAt DESC")
+    List<Long> findRecentlyActiveIds(@Param("since") LocalDateTime since, Pageable pageable);
+
+    @Query("SELECT u.id FROM User u WHERE u.role = :role AND u.enabled = true")
+    List<Long> findActiveIdsByRole(@Param("role") Role role);
+
+    // Change feed for downstream replicas (unique index on change_seq)
+    @Query("SELECT u FROM User u WHERE u.changeSeq > :since ORDER BY u.changeSeq")
+    List<User> findChangedSince(@Param("since") long since, Pageable pageable);
+
+    // Bulk update bypasses entity listeners: a login changes neither change_seq nor updatedAt
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.lastLoginAt = :at WHERE u.id = :id")
+    int updateLastLoginAt(@Param("id") Long id, @Param("at") LocalDateTime at);
 }
@@ -0,0 +1,18 @@
+package uth.edu.vn.lms_user_service.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import uth.edu.vn.lms_user_service.document.UserSession;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * MongoDB Repository for closed server-side sessions
+ */
+@Repository
+public interface UserSessionRepository extends MongoRepository<UserSession, String> {
+
+    // Served by user_started_idx
+    List<UserSession> findByUserIdAndStartedAtBetweenOrderByStartedAtDesc(Long userId, Instant start, Instant end);
+}
@@ -0,0 +1,20 @@
+package uth.edu.vn.lms_user_service.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import uth.edu.vn.lms_user_service.document.VideoWatchProgress;
+
+import java.util.List;
+
+/**
+ * MongoDB Repository for precomputed video watch progress
+ */
+@Repository
+public interface VideoWatchProgressRepository extends MongoRepository<VideoWatchProgress, String> {
+
+    // Served by course_video_idx
+    List<VideoWatchProgress> findByCourseIdAndVideoId(Long courseId, String videoId);
+
+    // Served by course_user_idx
+    List<VideoWatchProgress> findByCourseIdAndUserId(Long courseId, Long userId);
+}
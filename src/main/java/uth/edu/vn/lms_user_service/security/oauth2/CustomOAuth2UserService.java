@@ -7,6 +7,7 @@ import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
+import uth.edu.vn.lms_user_service.cache.UserCache;
 import uth.edu.vn.lms_user_service.entity.AuthProvider;
 import uth.edu.vn.lms_user_service.entity.Role;
 import uth.edu.vn.lms_user_service.entity.User;
@@ -23,9 +24,11 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
     private static final Logger log = LoggerFactory.getLogger(CustomOAuth2UserService.class);
 
     private final UserRepository userRepository;
+    private final UserCache userCache;
 
-    public CustomOAuth2UserService(UserRepository userRepository) {
+    public CustomOAuth2UserService(UserRepository userRepository, UserCache userCache) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
     }
 
     @Override
@@ -86,7 +89,9 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
         user.setEnabled(true);
         // Password is null for OAuth2 users
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userCache.registered(savedUser.getId());
+        return savedUser;
     }
 
     private User updateExistingUser(User user, OAuth2UserInfo userInfo) {
@@ -99,7 +104,9 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
             user.setEmailVerified(true);
         }
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userCache.invalidate(savedUser.getId());
+        return savedUser;
     }
 
     private String generateUsername(String email) {
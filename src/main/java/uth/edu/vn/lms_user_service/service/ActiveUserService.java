@@ -0,0 +1,451 @@
+package uth.edu.vn.lms_user_service.service;
+
+import jakarta.annotation.PreDestroy;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uth.edu.vn.lms_user_service.document.ActivityLog;
+import uth.edu.vn.lms_user_service.document.BackfillCheckpoint;
+import uth.edu.vn.lms_user_service.document.DailyActiveUsers;
+import uth.edu.vn.lms_user_service.dto.ActiveUsersResponse;
+import uth.edu.vn.lms_user_service.dto.RetentionResponse;
+import uth.edu.vn.lms_user_service.exception.ApiException;
+import uth.edu.vn.lms_user_service.repository.BackfillCheckpointRepository;
+import uth.edu.vn.lms_user_service.repository.DailyActiveUsersRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Active users per day as compressed bitmaps (DAU/WAU/MAU and cohort retention)
+ *
+ * Write Path: ActivityConsumer -> in-memory bitmap per day -> periodic merge into
+ * daily_active_users (optimistic locking, so concurrent nodes never drop users)
+ * Read Path: load the day bitmaps of the range and combine them with OR / AND / ANDNOT.
+ * Closed days are kept in a small in-process cache since they no longer change, as are the
+ * cumulative "seen before day X" bitmaps and retention matrices of ranges made of closed days.
+ */
+@Service
+public class ActiveUserService {
+
+    private static final Logger log = LoggerFactory.getLogger(ActiveUserService.class);
+    private static final ZoneId VIETNAM_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+    private static final int MAX_MERGE_ATTEMPTS = 5;
+    private static final int CLOSED_DAY_CACHE_SIZE = 800;
+    private static final int SEEN_BEFORE_CACHE_SIZE = 64;
+    private static final int RETENTION_CACHE_SIZE = 256;
+    private static final int MAX_SERIES_DAYS = 366;
+    private static final int MAX_RETENTION_PERIODS = 52;
+    private static final String REBUILD_JOB = "daily-active-users";
+
+    private final MongoTemplate mongoTemplate;
+    private final DailyActiveUsersRepository dailyRepository;
+    private final BackfillCheckpointRepository checkpointRepository;
+    private final ConcurrentHashMap<LocalDate, RoaringBitmap> pending = new ConcurrentHashMap<>();
+    private final Map<LocalDate, RoaringBitmap> closedDays = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LocalDate, RoaringBitmap> eldest) {
+            return size() > CLOSED_DAY_CACHE_SIZE;
+        }
+    };
+    // Users active on any day before the key; the most recent cutoffs are kept
+    private final TreeMap<LocalDate, RoaringBitmap> seenBefore = new TreeMap<>();
+    private final Map<RetentionKey, RetentionResponse> closedRetention = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<RetentionKey, RetentionResponse> eldest) {
+            return size() > RETENTION_CACHE_SIZE;
+        }
+    };
+
+    private record RetentionKey(LocalDate start, int periods, int periodDays) {}
+
+    @Value("${app.activity.active-users.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    // Days streamed and merged per rebuild step; bounds the bitmaps held in memory
+    @Value("${app.activity.active-users.rebuild-window-days:7}")
+    private int rebuildWindowDays;
+
+    public ActiveUserService(MongoTemplate mongoTemplate, DailyActiveUsersRepository dailyRepository,
+                             BackfillCheckpointRepository checkpointRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.dailyRepository = dailyRepository;
+        this.checkpointRepository = checkpointRepository;
+    }
+
+    /**
+     * Mark a user active on the (Vietnam) day of the activity
+     */
+    public void record(Long userId, Instant timestamp) {
+        Integer id = toBitmapId(userId);
+        if (id == null) {
+            return;
+        }
+        LocalDate day = LocalDate.ofInstant(timestamp != null ? timestamp : Instant.now(), VIETNAM_ZONE);
+        pending.compute(day, (d, bitmap) -> {
+            RoaringBitmap users = bitmap != null ? bitmap : new RoaringBitmap();
+            users.add(id);
+            return users;
+        });
+    }
+
+    /**
+     * Merge pending day bitmaps into MongoDB
+     */
+    @Scheduled(fixedDelayString = "${app.activity.active-users.flush-interval-ms:10000}")
+    public void flush() {
+        for (LocalDate day : pending.keySet()) {
+            RoaringBitmap users = pending.remove(day);
+            if (users == null) {
+                continue;
+            }
+            try {
+                mergeDay(day, users);
+            } catch (Exception e) {
+                log.warn("Failed to merge active users for {}, will retry: {}", day, e.getMessage());
+                pending.merge(day, users, (a, b) -> RoaringBitmap.or(a, b));
+            }
+        }
+    }
+
+    private void mergeDay(LocalDate day, RoaringBitmap users) {
+        for (int attempt = 1; attempt <= MAX_MERGE_ATTEMPTS; attempt++) {
+            DailyActiveUsers document = dailyRepository.findById(day.toString())
+                .orElseGet(() -> new DailyActiveUsers(day.toString()));
+            RoaringBitmap merged = deserialize(document.getBitmap());
+            long before = merged.getLongCardinality();
+            merged.or(users);
+            if (document.getVersion() != null && merged.getLongCardinality() == before) {
+                return; // nothing new for this day
+            }
+            document.setBitmap(serialize(merged));
+            document.setUserCount(merged.getLongCardinality());
+            document.setUpdatedAt(Instant.now());
+            try {
+                dailyRepository.save(document);
+                synchronized (closedDays) {
+                    closedDays.remove(day);
+                }
+                // Late events (or a rebuild) changed a day that derived results may include
+                synchronized (seenBefore) {
+                    seenBefore.tailMap(day, false).clear();
+                }
+                synchronized (closedRetention) {
+                    closedRetention.clear();
+                }
+                return;
+            } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+                // Another node updated the day first; reload and merge again
+            }
+        }
+        throw new IllegalStateException("Too much contention merging active users for " + day);
+    }
+
+    /**
+     * DAU / WAU / MAU for every day in [start, end]
+     */
+    public List<ActiveUsersResponse> getActiveUsers(LocalDate start, LocalDate end) {
+        if (start.isAfter(end) || ChronoUnit.DAYS.between(start, end) >= MAX_SERIES_DAYS) {
+            throw ApiException.badRequest("Range must be between 1 and " + MAX_SERIES_DAYS + " days");
+        }
+        Map<LocalDate, RoaringBitmap> days = loadDays(start.minusDays(29), end.plusDays(1));
+
+        List<ActiveUsersResponse> series = new ArrayList<>();
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            series.add(new ActiveUsersResponse(
+                day,
+                days.getOrDefault(day, new RoaringBitmap()).getLongCardinality(),
+                union(days, day.minusDays(6), day).getLongCardinality(),
+                union(days, day.minusDays(29), day).getLongCardinality()
+            ));
+        }
+        return series;
+    }
+
+    /**
+     * Cohort retention: users first seen in each period, and the share still active in later periods
+     */
+    public RetentionResponse getRetention(LocalDate start, int periods, int periodDays) {
+        if (periods < 1 || periods > MAX_RETENTION_PERIODS || periodDays < 1 || periodDays > 31) {
+            throw ApiException.badRequest("periods must be 1-" + MAX_RETENTION_PERIODS + " and periodDays 1-31");
+        }
+        LocalDate end = start.plusDays((long) periods * periodDays);
+        RetentionKey key = new RetentionKey(start, periods, periodDays);
+        synchronized (closedRetention) {
+            RetentionResponse cached = closedRetention.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Map<LocalDate, RoaringBitmap> days = loadDays(start, end);
+
+        // Everyone seen before the window is not new in any cohort
+        RoaringBitmap seen = seenBefore(start);
+
+        List<RoaringBitmap> periodUsers = new ArrayList<>(periods);
+        for (int p = 0; p < periods; p++) {
+            LocalDate periodStart = start.plusDays((long) p * periodDays);
+            periodUsers.add(union(days, periodStart, periodStart.plusDays(periodDays - 1)));
+        }
+
+        List<RetentionResponse.Cohort> cohorts = new ArrayList<>(periods);
+        for (int p = 0; p < periods; p++) {
+            RoaringBitmap cohort = RoaringBitmap.andNot(periodUsers.get(p), seen);
+            seen.or(periodUsers.get(p));
+            long size = cohort.getLongCardinality();
+
+            List<Double> retention = new ArrayList<>(periods - p);
+            for (int k = p; k < periods; k++) {
+                retention.add(size > 0 ? (double) RoaringBitmap.andCardinality(cohort, periodUsers.get(k)) / size : 0.0);
+            }
+            cohorts.add(new RetentionResponse.Cohort(start.plusDays((long) p * periodDays), size, retention));
+        }
+        RetentionResponse response = new RetentionResponse(start, periodDays, cohorts);
+        if (allClosedBefore(end)) {
+            synchronized (closedRetention) {
+                closedRetention.put(key, response);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Users active on any day before the given one (a copy the caller may modify).
+     * Starts from the nearest earlier cached cutoff and ORs only the days since, so the full
+     * history is read once rather than on every retention query.
+     */
+    private RoaringBitmap seenBefore(LocalDate day) {
+        Map.Entry<LocalDate, RoaringBitmap> base;
+        synchronized (seenBefore) {
+            base = seenBefore.floorEntry(day);
+        }
+        RoaringBitmap seen;
+        if (base != null) {
+            seen = base.getValue().clone();
+            loadDays(base.getKey(), day).values().forEach(seen::or);
+        } else {
+            seen = FastAggregation.or(dailyRepository.findBefore(day.toString()).stream()
+                .map(document -> deserialize(document.getBitmap()))
+                .iterator());
+        }
+        if (allClosedBefore(day)) {
+            synchronized (seenBefore) {
+                seenBefore.put(day, seen.clone());
+                while (seenBefore.size() > SEEN_BEFORE_CACHE_SIZE) {
+                    seenBefore.pollFirstEntry();
+                }
+            }
+        }
+        return seen;
+    }
+
+    // Every day before the given one is closed (see loadDays)
+    private static boolean allClosedBefore(LocalDate day) {
+        return !day.isAfter(LocalDate.now(VIETNAM_ZONE).minusDays(1));
+    }
+
+    private static RoaringBitmap union(Map<LocalDate, RoaringBitmap> days, LocalDate from, LocalDate to) {
+        List<RoaringBitmap> bitmaps = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            RoaringBitmap bitmap = days.get(day);
+            if (bitmap != null) {
+                bitmaps.add(bitmap);
+            }
+        }
+        return bitmaps.isEmpty() ? new RoaringBitmap() : FastAggregation.or(bitmaps.iterator());
+    }
+
+    /**
+     * Day bitmaps in [start, end); closed days come from the in-process cache when possible
+     */
+    private Map<LocalDate, RoaringBitmap> loadDays(LocalDate start, LocalDate end) {
+        LocalDate today = LocalDate.now(VIETNAM_ZONE);
+        Map<LocalDate, RoaringBitmap> days = new HashMap<>();
+        synchronized (closedDays) {
+            for (LocalDate day = start; day.isBefore(end); day = day.plusDays(1)) {
+                RoaringBitmap cached = closedDays.get(day);
+                if (cached != null) {
+                    days.put(day, cached);
+                }
+            }
+        }
+        if (days.size() == ChronoUnit.DAYS.between(start, end)) {
+            return days;
+        }
+
+        for (DailyActiveUsers document : dailyRepository.findByDayRange(start.toString(), end.toString())) {
+            LocalDate day = LocalDate.parse(document.getId());
+            if (days.containsKey(day)) {
+                continue;
+            }
+            RoaringBitmap bitmap = deserialize(document.getBitmap());
+            days.put(day, bitmap);
+            // Yesterday can still receive late events; only cache older days
+            if (day.isBefore(today.minusDays(1))) {
+                synchronized (closedDays) {
+                    closedDays.put(day, bitmap);
+                }
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Start or resume building day bitmaps from historical activity logs until the rebuild has
+     * completed once.
+     * Live ingestion fills the collection too, so completion is tracked by an explicit checkpoint
+     * rather than by the collection being non-empty.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeRebuild() {
+        if (!rebuildOnStartup) {
+            return;
+        }
+        BackfillCheckpoint checkpoint;
+        try {
+            checkpoint = checkpointRepository.findById(REBUILD_JOB + ":0")
+                .orElseGet(() -> new BackfillCheckpoint(REBUILD_JOB, 0, null, null));
+        } catch (Exception e) {
+            log.warn("Skipping active users rebuild: {}", e.getMessage());
+            return;
+        }
+        if (checkpoint.isCompleted()) {
+            return;
+        }
+        Thread.ofVirtual().name("active-users-rebuild").start(() -> rebuild(checkpoint));
+    }
+
+    /**
+     * Rebuild every day bitmap from scratch
+     */
+    public void rebuild() {
+        rebuild(new BackfillCheckpoint(REBUILD_JOB, 0, null, null));
+    }
+
+    /**
+     * Walk history in windows of rebuildWindowDays days, from the oldest activity (or the day
+     * after the checkpoint's lastId) through today. Each window is streamed by timestamp range,
+     * merged into daily_active_users and checkpointed before the next one, so only one window of
+     * bitmaps is held in memory and an interrupted rebuild resumes at the next window.
+     */
+    private void rebuild(BackfillCheckpoint checkpoint) {
+        try {
+            LocalDate from = checkpoint.getLastId() != null
+                ? LocalDate.parse(checkpoint.getLastId()).plusDays(1)
+                : oldestActivityDay();
+            LocalDate until = LocalDate.now(VIETNAM_ZONE).plusDays(1);
+            log.info("Rebuilding daily active user bitmaps from activity logs{}",
+                from != null ? " starting " + from : "");
+
+            int window = Math.max(1, rebuildWindowDays);
+            for (LocalDate start = from; start != null && start.isBefore(until); start = start.plusDays(window)) {
+                LocalDate end = start.plusDays(window).isBefore(until) ? start.plusDays(window) : until;
+                Map<LocalDate, RoaringBitmap> rebuilt = rebuildWindow(start, end);
+                rebuilt.forEach(this::mergeDay);
+
+                // lastId holds the last rebuilt day for this job
+                checkpoint.setLastId(end.minusDays(1).toString());
+                checkpoint.setProcessed(checkpoint.getProcessed() + rebuilt.size());
+                saveCheckpoint(checkpoint);
+            }
+            checkpoint.setCompleted(true);
+            saveCheckpoint(checkpoint);
+            log.info("Daily active user bitmaps rebuilt for {} days", checkpoint.getProcessed());
+        } catch (Exception e) {
+            log.error("Daily active users rebuild failed, will resume on next startup: {}", e.getMessage(), e);
+        }
+    }
+
+    private Map<LocalDate, RoaringBitmap> rebuildWindow(LocalDate start, LocalDate end) {
+        Query query = new Query(Criteria.where("timestamp")
+                .gte(start.atStartOfDay(VIETNAM_ZONE).toInstant())
+                .lt(end.atStartOfDay(VIETNAM_ZONE).toInstant())
+                .and("userId").ne(null))
+            .cursorBatchSize(2000);
+        query.fields().include("userId", "timestamp");
+
+        Map<LocalDate, RoaringBitmap> rebuilt = new HashMap<>();
+        try (Stream<ActivityLog> stream = mongoTemplate.stream(query, ActivityLog.class)) {
+            stream.forEach(activity -> {
+                Integer id = toBitmapId(activity.getUserId());
+                if (id != null && activity.getTimestamp() != null) {
+                    rebuilt.computeIfAbsent(LocalDate.ofInstant(activity.getTimestamp(), VIETNAM_ZONE), d -> new RoaringBitmap())
+                        .add(id);
+                }
+            });
+        }
+        return rebuilt;
+    }
+
+    private LocalDate oldestActivityDay() {
+        Query query = new Query(Criteria.where("timestamp").ne(null))
+            .with(Sort.by(Sort.Direction.ASC, "timestamp"))
+            .limit(1);
+        query.fields().include("timestamp");
+        ActivityLog oldest = mongoTemplate.findOne(query, ActivityLog.class);
+        return oldest != null ? LocalDate.ofInstant(oldest.getTimestamp(), VIETNAM_ZONE) : null;
+    }
+
+    private void saveCheckpoint(BackfillCheckpoint checkpoint) {
+        checkpoint.setUpdatedAt(Instant.now());
+        checkpointRepository.save(checkpoint);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static Integer toBitmapId(Long userId) {
+        // Postgres user ids fit in an int for the foreseeable future; anything else is skipped
+        if (userId == null || userId < 0 || userId > Integer.MAX_VALUE) {
+            return null;
+        }
+        return userId.intValue();
+    }
+
+    private static byte[] serialize(RoaringBitmap bitmap) {
+        bitmap.runOptimize();
+        ByteBuffer buffer = ByteBuffer.allocate(bitmap.serializedSizeInBytes());
+        bitmap.serialize(buffer);
+        return buffer.array();
+    }
+
+    private static RoaringBitmap deserialize(byte[] bytes) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        if (bytes == null || bytes.length == 0) {
+            return bitmap;
+        }
+        try {
+            bitmap.deserialize(ByteBuffer.wrap(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bitmap;
+    }
+}
@@ -0,0 +1,271 @@
+package uth.edu.vn.lms_user_service.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uth.edu.vn.lms_user_service.config.AsyncWebConfig;
+import uth.edu.vn.lms_user_service.dto.ActivityCursor;
+import uth.edu.vn.lms_user_service.exception.ApiException;
+import uth.edu.vn.lms_user_service.repository.ActivityLogRepository;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Raw activity export for research (CSV or NDJSON, optionally gzipped)
+ *
+ * Rows are streamed from a MongoDB cursor in (timestamp, _id) order and written as they
+ * arrive, so memory is constant regardless of range size. Exports are limited in number
+ * and paced to a maximum row rate so they cannot starve ingestion. Every row carries its
+ * cursor token; pass the last received one as {@code cursor} to resume an interrupted export.
+ *
+ * A large export legitimately outlives the default async timeout of other streams, so it runs
+ * under its own timeout. The concurrency permit is released when the async request completes
+ * (finished, timed out or failed) even if the body never ran.
+ */
+@Service
+public class ActivityExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityExportService.class);
+    private static final int PACE_EVERY_ROWS = 500;
+    private static final String[] CSV_COLUMNS = {
+        "cursor", "id", "timestamp", "userId", "sessionId", "activityType", "action",
+        "courseId", "sectionId", "moduleId", "lessonId", "quizId", "assignmentId",
+        "pageUrl", "pageTitle", "apiEndpoint", "httpMethod", "responseStatus", "responseTimeMs",
+        "durationMs", "deviceType", "browser", "os", "metadata"
+    };
+
+    public enum Format { CSV, NDJSON }
+
+    public record ExportFilter(Instant start, Instant end, Long courseId, Long userId, String activityType) {}
+
+    private final ActivityLogRepository activityLogRepository;
+    private final ObjectMapper objectMapper;
+    private final Semaphore exportPermits;
+
+    // Row rate per export; applied by sleeping between chunks (0 = unthrottled)
+    @Value("${app.activity.export.max-rows-per-second:5000}")
+    private int maxRowsPerSecond;
+
+    // Async timeout of one export response (0 = none)
+    @Value("${app.activity.export.timeout:PT4H}")
+    private Duration exportTimeout;
+
+    public ActivityExportService(ActivityLogRepository activityLogRepository, ObjectMapper objectMapper,
+                                 @Value("${app.activity.export.max-concurrent:2}") int maxConcurrentExports) {
+        this.activityLogRepository = activityLogRepository;
+        this.objectMapper = objectMapper;
+        this.exportPermits = new Semaphore(maxConcurrentExports);
+    }
+
+    /**
+     * Build the export body; fails fast with 429 when too many exports are already running
+     */
+    public StreamingResponseBody export(ExportFilter filter, Format format, boolean gzip, String cursor,
+                                        HttpServletRequest httpRequest) {
+        if (filter.start() == null || filter.end() == null || !filter.start().isBefore(filter.end())) {
+            throw ApiException.badRequest("start must be before end");
+        }
+        ActivityCursor after = ActivityCursor.decode(cursor);
+        Criteria criteria = toCriteria(filter);
+
+        if (!exportPermits.tryAcquire()) {
+            throw new ApiException(HttpStatus.TOO_MANY_REQUESTS, "TOO_MANY_EXPORTS",
+                "Too many activity exports are running, try again later");
+        }
+        AtomicBoolean released = new AtomicBoolean(false);
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                exportPermits.release();
+            }
+        };
+        httpRequest.setAttribute(AsyncWebConfig.TIMEOUT_ATTRIBUTE, exportTimeout);
+        httpRequest.setAttribute(AsyncWebConfig.COMPLETION_ATTRIBUTE, release);
+
+        return out -> {
+            long started = System.nanoTime();
+            long[] rows = {0};
+            try {
+                OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024, true) : out;
+                if (format == Format.CSV) {
+                    writeCsv(target, criteria, after, rows, started);
+                } else {
+                    writeNdjson(target, criteria, after, rows, started);
+                }
+                log.info("Activity export finished: {} rows in {} ms", rows[0],
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            } catch (UncheckedIOException e) {
+                // Client disconnected; it can resume from the last cursor it received
+                log.info("Activity export aborted after {} rows: {}", rows[0], e.getMessage());
+            } finally {
+                release.run();
+            }
+        };
+    }
+
+    private void writeCsv(OutputStream target, Criteria criteria, ActivityCursor after, long[] rows, long started)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(String.join(",", CSV_COLUMNS));
+        writer.write('\n');
+
+        activityLogRepository.streamForExport(criteria, after, activity -> {
+            try {
+                Object[] values = {
+                    ActivityCursor.of(activity).encode(), activity.getId(), activity.getTimestamp(),
+                    activity.getUserId(), activity.getSessionId(), activity.getActivityType(), activity.getAction(),
+                    activity.getCourseId(), activity.getSectionId(), activity.getModuleId(), activity.getLessonId(),
+                    activity.getQuizId(), activity.getAssignmentId(), activity.getPageUrl(), activity.getPageTitle(),
+                    activity.getApiEndpoint(), activity.getHttpMethod(), activity.getResponseStatus(),
+                    activity.getResponseTimeMs(), activity.getDurationMs(), activity.getDeviceType(),
+                    activity.getBrowser(), activity.getOs(), metadataJson(activity.getMetadata())
+                };
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    // The cursor (base64url, may start with '-') is read back verbatim as the resume token
+                    writeCsvValue(writer, values[i], i > 0);
+                }
+                writer.write('\n');
+                pace(++rows[0], started, writer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        });
+        writer.close();
+    }
+
+    private void writeNdjson(OutputStream target, Criteria criteria, ActivityCursor after, long[] rows, long started)
+            throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(target);
+        activityLogRepository.streamForExport(criteria, after, activity -> {
+            try {
+                generator.writeStartObject();
+                generator.writeStringField("cursor", ActivityCursor.of(activity).encode());
+                generator.writeStringField("id", activity.getId());
+                generator.writeStringField("timestamp", activity.getTimestamp() != null ? activity.getTimestamp().toString() : null);
+                generator.writeObjectField("userId", activity.getUserId());
+                generator.writeStringField("sessionId", activity.getSessionId());
+                generator.writeStringField("activityType", activity.getActivityType());
+                generator.writeStringField("action", activity.getAction());
+                generator.writeObjectField("courseId", activity.getCourseId());
+                generator.writeObjectField("sectionId", activity.getSectionId());
+                generator.writeObjectField("moduleId", activity.getModuleId());
+                generator.writeObjectField("lessonId", activity.getLessonId());
+                generator.writeObjectField("quizId", activity.getQuizId());
+                generator.writeObjectField("assignmentId", activity.getAssignmentId());
+                generator.writeStringField("pageUrl", activity.getPageUrl());
+                generator.writeStringField("pageTitle", activity.getPageTitle());
+                generator.writeStringField("apiEndpoint", activity.getApiEndpoint());
+                generator.writeStringField("httpMethod", activity.getHttpMethod());
+                generator.writeObjectField("responseStatus", activity.getResponseStatus());
+                generator.writeObjectField("responseTimeMs", activity.getResponseTimeMs());
+                generator.writeObjectField("durationMs", activity.getDurationMs());
+                generator.writeStringField("deviceType", activity.getDeviceType());
+                generator.writeStringField("browser", activity.getBrowser());
+                generator.writeStringField("os", activity.getOs());
+                generator.writeObjectField("metadata", activity.getMetadata());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                pace(++rows[0], started, generator);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        });
+        generator.close();
+    }
+
+    /**
+     * Flush every chunk and sleep when the export runs ahead of the allowed row rate
+     */
+    private void pace(long rows, long started, Flushable sink) throws IOException {
+        if (rows % PACE_EVERY_ROWS != 0) {
+            return;
+        }
+        sink.flush();
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        long expectedNanos = rows * TimeUnit.SECONDS.toNanos(1) / maxRowsPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - started);
+        if (aheadNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(aheadNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Export interrupted", e);
+            }
+        }
+    }
+
+    private static Criteria toCriteria(ExportFilter filter) {
+        Criteria criteria = Criteria.where("timestamp").gte(filter.start()).lt(filter.end());
+        if (filter.courseId() != null) {
+            criteria.and("courseId").is(filter.courseId());
+        }
+        if (filter.userId() != null) {
+            criteria.and("userId").is(filter.userId());
+        }
+        if (filter.activityType() != null && !filter.activityType().isBlank()) {
+            criteria.and("activityType").is(filter.activityType());
+        }
+        return criteria;
+    }
+
+    private String metadataJson(Map<String, Object> metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (IOException e) {
+            return metadata.toString();
+        }
+    }
+
+    /**
+     * With guardFormula, text cells starting like a formula (=, +, -, @, tab, CR) get a leading '
+     * so spreadsheets show them as text instead of evaluating them; numbers are written as they are
+     */
+    private static void writeCsvValue(Writer writer, Object value, boolean guardFormula) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (guardFormula && value instanceof CharSequence && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        boolean quote = text.indexOf(',') >= 0 || text.indexOf('"') >= 0
+            || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,251 @@
+package uth.edu.vn.lms_user_service.service;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import uth.edu.vn.lms_user_service.document.ActivityLog;
+import uth.edu.vn.lms_user_service.document.BackfillCheckpoint;
+import uth.edu.vn.lms_user_service.repository.BackfillCheckpointRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Backfill typed ID fields (courseId, lessonId, ...) on activity logs written before
+ * ingestion started promoting them out of metadata.
+ *
+ * The _id range existing at first run is split into partitions by ObjectId timestamp and
+ * processed in parallel. Each partition walks its range in _id order and checkpoints the
+ * last converted _id after every batch, so a restart resumes where it stopped. The last
+ * partition has no upper bound, so documents written after partitioning by nodes that do not
+ * promote the IDs yet are converted too.
+ *
+ * Course queries fall back to metadata.courseId until {@link #isCompleted()}.
+ */
+@Service
+public class ActivityIdBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityIdBackfillService.class);
+    static final String JOB = "activity-typed-ids-v2";
+    private static final Duration COMPLETION_RECHECK = Duration.ofSeconds(30);
+
+    private final MongoTemplate mongoTemplate;
+    private final BackfillCheckpointRepository checkpointRepository;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    // Completion is read from the checkpoints (any node may run the job) and never reverts
+    private volatile boolean completed;
+    private volatile Instant nextCompletionCheck = Instant.MIN;
+
+    @Value("${app.activity.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.activity.backfill.partitions:4}")
+    private int partitions;
+
+    @Value("${app.activity.backfill.batch-size:500}")
+    private int batchSize;
+
+    // Pause between batches of one partition to leave headroom for live traffic
+    @Value("${app.activity.backfill.batch-pause:PT0.05S}")
+    private Duration batchPause;
+
+    public ActivityIdBackfillService(MongoTemplate mongoTemplate, BackfillCheckpointRepository checkpointRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.checkpointRepository = checkpointRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (enabled) {
+            Thread.ofVirtual().name("activity-id-backfill").start(this::run);
+        }
+    }
+
+    /**
+     * Whether every partition has been converted, i.e. the typed courseId alone finds all of a
+     * course's activities; re-read from the checkpoints at most every 30 seconds until it is
+     */
+    public boolean isCompleted() {
+        if (completed) {
+            return true;
+        }
+        Instant now = Instant.now();
+        if (now.isBefore(nextCompletionCheck)) {
+            return false;
+        }
+        nextCompletionCheck = now.plus(COMPLETION_RECHECK);
+        try {
+            List<BackfillCheckpoint> checkpoints = checkpointRepository.findByJobOrderByPartitionAsc(JOB);
+            completed = !checkpoints.isEmpty() && checkpoints.stream().allMatch(BackfillCheckpoint::isCompleted);
+        } catch (Exception e) {
+            log.warn("Cannot read backfill checkpoints: {}", e.getMessage());
+        }
+        return completed;
+    }
+
+    /**
+     * Run (or resume) the backfill; returns immediately if it is already running on this node
+     */
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<BackfillCheckpoint> checkpoints = loadOrCreatePartitions();
+            List<BackfillCheckpoint> remaining = checkpoints.stream().filter(c -> !c.isCompleted()).toList();
+            if (remaining.isEmpty()) {
+                completed = true;
+                return;
+            }
+            log.info("Backfilling typed activity IDs: {} of {} partitions remaining", remaining.size(), checkpoints.size());
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>();
+                remaining.forEach(checkpoint -> futures.add(executor.submit(() -> processPartition(checkpoint))));
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            completed = true;
+            log.info("Typed activity ID backfill completed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Typed activity ID backfill stopped, will resume from checkpoints: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private List<BackfillCheckpoint> loadOrCreatePartitions() {
+        List<BackfillCheckpoint> existing = checkpointRepository.findByJobOrderByPartitionAsc(JOB);
+        if (!existing.isEmpty()) {
+            return existing;
+        }
+
+        ObjectId first = boundaryId(Sort.Direction.ASC);
+        ObjectId last = boundaryId(Sort.Direction.DESC);
+        if (first == null || last == null) {
+            // Nothing to convert; record that so course queries stop falling back to metadata
+            BackfillCheckpoint empty = new BackfillCheckpoint(JOB, 0, null, null);
+            empty.setCompleted(true);
+            return List.of(checkpointRepository.save(empty));
+        }
+
+        long startSec = first.getTimestamp();
+        long endSec = last.getTimestamp() + 1L; // exclusive upper bound covers the newest document
+        int count = (int) Math.max(1, Math.min(partitions, endSec - startSec));
+        long step = (endSec - startSec + count - 1) / count;
+
+        List<BackfillCheckpoint> created = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long lower = startSec + i * step;
+            long upper = Math.min(endSec, lower + step);
+            String upperId = upper < endSec ? idAt(upper).toHexString() : null; // last partition is open-ended
+            created.add(new BackfillCheckpoint(JOB, i, idAt(lower).toHexString(), upperId));
+        }
+        return checkpointRepository.saveAll(created);
+    }
+
+    private void processPartition(BackfillCheckpoint checkpoint) {
+        ObjectId upper = checkpoint.getUpperId() != null ? new ObjectId(checkpoint.getUpperId()) : null;
+        while (!Thread.currentThread().isInterrupted()) {
+            Criteria range = checkpoint.getLastId() != null
+                ? Criteria.where("_id").gt(new ObjectId(checkpoint.getLastId()))
+                : Criteria.where("_id").gte(new ObjectId(checkpoint.getLowerId()));
+            if (upper != null) {
+                range.lt(upper);
+            }
+            Query query = new Query(range.and("metadata").exists(true))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(batchSize);
+            query.fields().include("metadata", "courseId", "sectionId", "moduleId", "lessonId", "quizId", "assignmentId");
+
+            List<ActivityLog> batch = mongoTemplate.find(query, ActivityLog.class);
+            if (batch.isEmpty()) {
+                checkpoint.setCompleted(true);
+                saveCheckpoint(checkpoint);
+                log.info("Backfill partition {} done: {} documents updated", checkpoint.getPartition(), checkpoint.getProcessed());
+                return;
+            }
+
+            checkpoint.setProcessed(checkpoint.getProcessed() + writeBatch(batch));
+            checkpoint.setLastId(batch.get(batch.size() - 1).getId());
+            saveCheckpoint(checkpoint);
+            pause();
+        }
+    }
+
+    private int writeBatch(List<ActivityLog> batch) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityLog.class);
+        int updates = 0;
+        for (ActivityLog activity : batch) {
+            Update update = new Update();
+            setIfPromoted(update, "courseId", activity.getCourseId(), activity.metadataAsLong("courseId"));
+            setIfPromoted(update, "sectionId", activity.getSectionId(), activity.metadataAsLong("sectionId"));
+            setIfPromoted(update, "moduleId", activity.getModuleId(), activity.metadataAsLong("moduleId"));
+            setIfPromoted(update, "lessonId", activity.getLessonId(), activity.metadataAsLong("lessonId"));
+            setIfPromoted(update, "quizId", activity.getQuizId(), activity.metadataAsLong("quizId"));
+            setIfPromoted(update, "assignmentId", activity.getAssignmentId(), activity.metadataAsLong("assignmentId"));
+            if (!update.getUpdateObject().isEmpty()) {
+                bulk.updateOne(Query.query(Criteria.where("_id").is(new ObjectId(activity.getId()))), update);
+                updates++;
+            }
+        }
+        if (updates > 0) {
+            bulk.execute();
+        }
+        return updates;
+    }
+
+    private static void setIfPromoted(Update update, String field, Long current, Long fromMetadata) {
+        if (current == null && fromMetadata != null) {
+            update.set(field, fromMetadata);
+        }
+    }
+
+    private ObjectId boundaryId(Sort.Direction direction) {
+        Query query = new Query().with(Sort.by(direction, "_id")).limit(1);
+        query.fields().include("_id");
+        ActivityLog boundary = mongoTemplate.findOne(query, ActivityLog.class);
+        return boundary != null && ObjectId.isValid(boundary.getId()) ? new ObjectId(boundary.getId()) : null;
+    }
+
+    private static ObjectId idAt(long epochSecond) {
+        return new ObjectId(Date.from(Instant.ofEpochSecond(epochSecond)), 0);
+    }
+
+    private void saveCheckpoint(BackfillCheckpoint checkpoint) {
+        checkpoint.setUpdatedAt(Instant.now());
+        checkpointRepository.save(checkpoint);
+    }
+
+    private void pause() {
+        if (batchPause.isZero() || batchPause.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(batchPause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
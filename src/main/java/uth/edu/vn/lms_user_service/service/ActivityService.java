@@ -1,18 +1,24 @@
 package uth.edu.vn.lms_user_service.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 import uth.edu.vn.lms_user_service.document.ActivityLog;
+import uth.edu.vn.lms_user_service.dto.ActivityCursor;
 import uth.edu.vn.lms_user_service.dto.ActivityMessage;
 import uth.edu.vn.lms_user_service.dto.ActivityRequest;
 import uth.edu.vn.lms_user_service.dto.ActivityResponse;
 import uth.edu.vn.lms_user_service.dto.ActivityStatsResponse;
 import uth.edu.vn.lms_user_service.dto.CourseActivityResponse;
+import uth.edu.vn.lms_user_service.dto.CursorPage;
+import uth.edu.vn.lms_user_service.dto.FieldSelection;
 import uth.edu.vn.lms_user_service.messaging.ActivityProducer;
 import uth.edu.vn.lms_user_service.repository.ActivityLogRepository;
 
@@ -22,6 +28,7 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -35,13 +42,41 @@ public class ActivityService {
 
     private static final Logger log = LoggerFactory.getLogger(ActivityService.class);
     private static final ZoneId VIETNAM_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // Course-related activity types
+    private static final List<String> COURSE_ACTIVITY_TYPES = List.of(
+        "COURSE_VIEW", "COURSE_ENROLL", "COURSE_COMPLETE",
+        "SECTION_VIEW", "SECTION_COMPLETE",
+        "LESSON_VIEW", "MODULE_VIEW", "MODULE_COMPLETE",
+        "QUIZ_VIEW", "QUIZ_START", "QUIZ_ANSWER", "QUIZ_SUBMIT", "QUIZ_RESULT_VIEW",
+        "ASSIGNMENT_VIEW", "ASSIGNMENT_START", "ASSIGNMENT_SUBMIT", "ASSIGNMENT_GRADE_VIEW",
+        "VIDEO_PLAY", "VIDEO_PAUSE", "VIDEO_COMPLETE", "VIDEO_SEEK",
+        "DOCUMENT_VIEW", "DOCUMENT_DOWNLOAD",
+        "DISCUSSION_VIEW", "DISCUSSION_POST", "DISCUSSION_REPLY"
+    );
     
     private final ActivityProducer activityProducer;
     private final ActivityLogRepository activityLogRepository;
+    private final ActivityStatsCache statsCache;
+    private final ActivityStatsExecutor statsExecutor;
+    private final CourseLastAccessService courseLastAccessService;
+    private final ActivityIdBackfillService activityIdBackfillService;
+    private final Timer statsTimer;
 
-    public ActivityService(ActivityProducer activityProducer, ActivityLogRepository activityLogRepository) {
+    public ActivityService(ActivityProducer activityProducer, ActivityLogRepository activityLogRepository,
+                           ActivityStatsCache statsCache, ActivityStatsExecutor statsExecutor,
+                           CourseLastAccessService courseLastAccessService,
+                           ActivityIdBackfillService activityIdBackfillService, MeterRegistry meterRegistry) {
         this.activityProducer = activityProducer;
         this.activityLogRepository = activityLogRepository;
+        this.statsCache = statsCache;
+        this.statsExecutor = statsExecutor;
+        this.courseLastAccessService = courseLastAccessService;
+        this.activityIdBackfillService = activityIdBackfillService;
+        this.statsTimer = Timer.builder("activity.stats.latency")
+            .description("Time to compute activity statistics for a range")
+            .register(meterRegistry);
     }
 
     /**
@@ -132,11 +167,24 @@ public class ActivityService {
 
     /**
      * Get user activities with pagination (from MongoDB)
+     * Only the document fields behind the requested response fields are read
      */
-    public Page<ActivityResponse> getUserActivities(Long userId, int page, int size) {
+    public Page<ActivityResponse> getUserActivities(Long userId, int page, int size, String fields) {
         Pageable pageable = PageRequest.of(page, Math.min(size, 100)); // Max 100 per page
-        return activityLogRepository.findByUserIdOrderByTimestampDesc(userId, pageable)
-            .map(ActivityResponse::fromDocument);
+        FieldSelection selection = ActivityResponse.fields(fields);
+        return activityLogRepository.findPage(Criteria.where("userId").is(userId), pageable, selection.documentFields())
+            .map(activity -> ActivityResponse.fromDocument(activity, selection));
+    }
+
+    /**
+     * Get user activities with keyset pagination (newest first)
+     * Seeks on user_timestamp_id_idx from the cursor and runs no count query,
+     * so every page costs the same regardless of depth
+     */
+    public CursorPage<ActivityResponse> getUserActivitiesAfter(Long userId, String cursor, int size, String fields) {
+        FieldSelection selection = ActivityResponse.fields(fields);
+        return findPageAfter(Criteria.where("userId").is(userId), cursor, size, selection)
+            .map(activity -> ActivityResponse.fromDocument(activity, selection));
     }
 
     /**
@@ -150,105 +198,55 @@ public class ActivityService {
 
     /**
      * Get activity statistics for a time period (from MongoDB)
+     *
+     * The range is split into aligned day/hour buckets. Closed buckets are read from the
+     * Redis bucket cache (computed once on first miss); the remaining buckets - the open
+     * bucket, unaligned edges and cache misses - are computed concurrently by
+     * {@link ActivityStatsExecutor}. Cancelling the returned future stops pending segments.
      */
-    public ActivityStatsResponse getStats(LocalDateTime start, LocalDateTime end) {
+    public CompletableFuture<ActivityStatsResponse> getStatsAsync(LocalDateTime start, LocalDateTime end) {
         Instant startInstant = start.toInstant(ZoneOffset.UTC);
         Instant endInstant = end.toInstant(ZoneOffset.UTC);
-        
-        // Get all activities in range for aggregation
-        List<ActivityLog> activities = activityLogRepository.findByTimestampBetween(startInstant, endInstant);
-        
-        // Total activities
-        long totalActivities = activities.size();
-        
-        // Unique users (DAU)
-        long uniqueUsers = activities.stream()
-            .map(ActivityLog::getUserId)
-            .filter(Objects::nonNull)
-            .distinct()
-            .count();
-        
-        // Unique sessions
-        long uniqueSessions = activities.stream()
-            .map(ActivityLog::getSessionId)
-            .filter(Objects::nonNull)
-            .distinct()
-            .count();
-        
-        // Activity by type
-        Map<String, Long> activityByType = activities.stream()
-            .filter(a -> a.getActivityType() != null)
-            .collect(Collectors.groupingBy(
-                ActivityLog::getActivityType,
-                LinkedHashMap::new,
-                Collectors.counting()
-            ));
-        
-        // Top pages
-        Map<String, Long> topPages = activities.stream()
-            .filter(a -> "PAGE_VIEW".equals(a.getActivityType()) && a.getPageUrl() != null)
-            .collect(Collectors.groupingBy(
-                ActivityLog::getPageUrl,
-                Collectors.counting()
-            ))
-            .entrySet().stream()
-            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-            .limit(10)
-            .collect(Collectors.toMap(
-                Map.Entry::getKey,
-                Map.Entry::getValue,
-                (e1, e2) -> e1,
-                LinkedHashMap::new
-            ));
-        
-        // Hourly distribution
-        Map<Integer, Long> hourlyDistribution = activities.stream()
-            .filter(a -> a.getTimestamp() != null)
-            .collect(Collectors.groupingBy(
-                a -> a.getTimestamp().atZone(VIETNAM_ZONE).getHour(),
-                LinkedHashMap::new,
-                Collectors.counting()
-            ));
-        
-        // Average session duration
-        double avgSessionDuration = calculateAvgSessionDuration(activities);
-        
-        return new ActivityStatsResponse(
-            totalActivities,
-            uniqueUsers,
-            uniqueSessions,
-            avgSessionDuration,
-            activityByType,
-            topPages,
-            hourlyDistribution
-        );
-    }
+        Timer.Sample sample = Timer.start();
 
-    private double calculateAvgSessionDuration(List<ActivityLog> activities) {
-        Map<String, List<ActivityLog>> sessions = activities.stream()
-            .filter(a -> a.getSessionId() != null && a.getTimestamp() != null)
-            .collect(Collectors.groupingBy(ActivityLog::getSessionId));
-        
-        if (sessions.isEmpty()) return 0.0;
-        
-        double totalMinutes = 0;
-        int count = 0;
-        
-        for (var sessionActivities : sessions.values()) {
-            var sorted = sessionActivities.stream()
-                .sorted(Comparator.comparing(ActivityLog::getTimestamp))
-                .toList();
-            
-            if (sorted.size() >= 2) {
-                Instant sessionStart = sorted.getFirst().getTimestamp();
-                Instant sessionEnd = sorted.getLast().getTimestamp();
-                Duration duration = Duration.between(sessionStart, sessionEnd);
-                totalMinutes += duration.toMinutes();
-                count++;
+        List<TimeBucket> buckets = TimeBucket.split(startInstant, endInstant, VIETNAM_ZONE);
+        Set<TimeBucket> cacheable = buckets.stream()
+            .filter(statsCache::isCacheable)
+            .collect(Collectors.toSet());
+        Map<TimeBucket, ActivityStatsPartial> cached = statsCache.getAll(List.copyOf(cacheable));
+
+        List<TimeBucket> pending = buckets.stream()
+            .filter(bucket -> !cached.containsKey(bucket))
+            .toList();
+
+        log.debug("Stats for {} - {}: {} buckets, {} from cache", startInstant, endInstant,
+            buckets.size(), cached.size());
+
+        CompletableFuture<ActivityStatsPartial> computed = statsExecutor.computeMerged(pending, bucket -> {
+            ActivityStatsPartial partial = computeStatsPartial(bucket);
+            if (cacheable.contains(bucket)) {
+                statsCache.put(bucket, partial);
             }
-        }
-        
-        return count > 0 ? totalMinutes / count : 0.0;
+            return partial;
+        });
+
+        CompletableFuture<ActivityStatsResponse> result = computed.thenApply(partial -> {
+            cached.values().forEach(partial::merge);
+            return partial.toResponse();
+        });
+        result.whenComplete((stats, ex) -> {
+            sample.stop(statsTimer);
+            if (result.isCancelled()) {
+                computed.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private ActivityStatsPartial computeStatsPartial(TimeBucket bucket) {
+        ActivityStatsPartial partial = new ActivityStatsPartial();
+        activityLogRepository.streamForStats(bucket.start(), bucket.end(), activity -> partial.add(activity, VIETNAM_ZONE));
+        return partial;
     }
 
     private String getClientIp(HttpServletRequest request) {
@@ -278,71 +276,93 @@ public class ActivityService {
      * Get student activities for a specific course (for instructor viewing)
      * Returns activities with Vietnamese formatted titles
      */
-    public Page<CourseActivityResponse> getCourseStudentActivities(Long studentId, Long courseId, int page, int size) {
-        Pageable pageable = PageRequest.of(page, Math.min(size, 100));
-        String courseIdStr = String.valueOf(courseId);
-        
-        // Course-related activity types
-        List<String> courseActivityTypes = Arrays.asList(
-            "COURSE_VIEW", "COURSE_ENROLL", "COURSE_COMPLETE",
-            "SECTION_VIEW", "SECTION_COMPLETE",
-            "LESSON_VIEW", "MODULE_VIEW", "MODULE_COMPLETE",
-            "QUIZ_VIEW", "QUIZ_START", "QUIZ_ANSWER", "QUIZ_SUBMIT", "QUIZ_RESULT_VIEW",
-            "ASSIGNMENT_VIEW", "ASSIGNMENT_START", "ASSIGNMENT_SUBMIT", "ASSIGNMENT_GRADE_VIEW",
-            "VIDEO_PLAY", "VIDEO_PAUSE", "VIDEO_COMPLETE", "VIDEO_SEEK",
-            "DOCUMENT_VIEW", "DOCUMENT_DOWNLOAD",
-            "DISCUSSION_VIEW", "DISCUSSION_POST", "DISCUSSION_REPLY"
-        );
-        
-        return activityLogRepository
-            .findByUserIdAndCourseIdAndActivityTypeIn(studentId, courseIdStr, courseActivityTypes, pageable)
-            .map(CourseActivityResponse::fromDocument);
+    public Page<CourseActivityResponse> getCourseStudentActivities(Long studentId, Long courseId, int page, int size,
+                                                                   String fields) {
+        Criteria criteria = courseCriteria(studentId, courseId).and("activityType").in(COURSE_ACTIVITY_TYPES);
+        return findCoursePage(criteria, page, size, fields);
     }
 
     /**
      * Get all student activities for a course (no activity type filter)
      */
-    public Page<CourseActivityResponse> getAllCourseStudentActivities(Long studentId, Long courseId, int page, int size) {
-        Pageable pageable = PageRequest.of(page, Math.min(size, 100));
-        String courseIdStr = String.valueOf(courseId);
-        return activityLogRepository
-            .findByUserIdAndCourseIdOrderByTimestampDesc(studentId, courseIdStr, pageable)
-            .map(CourseActivityResponse::fromDocument);
+    public Page<CourseActivityResponse> getAllCourseStudentActivities(Long studentId, Long courseId, int page, int size,
+                                                                      String fields) {
+        return findCoursePage(courseCriteria(studentId, courseId), page, size, fields);
     }
 
     /**
      * Get student activities for a course filtered by activity type
      */
-    public Page<CourseActivityResponse> getCourseStudentActivitiesByType(Long studentId, Long courseId, String activityType, int page, int size) {
+    public Page<CourseActivityResponse> getCourseStudentActivitiesByType(Long studentId, Long courseId, String activityType,
+                                                                         int page, int size, String fields) {
+        Criteria criteria = courseCriteria(studentId, courseId).and("activityType").is(activityType);
+        return findCoursePage(criteria, page, size, fields);
+    }
+
+    private Page<CourseActivityResponse> findCoursePage(Criteria criteria, int page, int size, String fields) {
         Pageable pageable = PageRequest.of(page, Math.min(size, 100));
-        String courseIdStr = String.valueOf(courseId);
-        List<String> types = Collections.singletonList(activityType);
-        return activityLogRepository
-            .findByUserIdAndCourseIdAndActivityTypeIn(studentId, courseIdStr, types, pageable)
-            .map(CourseActivityResponse::fromDocument);
+        FieldSelection selection = CourseActivityResponse.fields(fields);
+        return activityLogRepository.findPage(criteria, pageable, selection.documentFields())
+            .map(activity -> CourseActivityResponse.fromDocument(activity, selection));
+    }
+
+    /**
+     * Get student activities for a course with keyset pagination
+     * Filters by a single activity type when given, otherwise by the course activity types
+     */
+    public CursorPage<CourseActivityResponse> getCourseStudentActivitiesAfter(Long studentId, Long courseId, String activityType,
+                                                                              String cursor, int size, String fields) {
+        List<String> types = activityType != null && !activityType.isEmpty()
+            ? Collections.singletonList(activityType)
+            : COURSE_ACTIVITY_TYPES;
+        Criteria criteria = courseCriteria(studentId, courseId).and("activityType").in(types);
+        FieldSelection selection = CourseActivityResponse.fields(fields);
+        return findPageAfter(criteria, cursor, size, selection)
+            .map(activity -> CourseActivityResponse.fromDocument(activity, selection));
+    }
+
+    /**
+     * Get all student activities for a course with keyset pagination (no activity type filter)
+     */
+    public CursorPage<CourseActivityResponse> getAllCourseStudentActivitiesAfter(Long studentId, Long courseId,
+                                                                                 String cursor, int size, String fields) {
+        FieldSelection selection = CourseActivityResponse.fields(fields);
+        return findPageAfter(courseCriteria(studentId, courseId), cursor, size, selection)
+            .map(activity -> CourseActivityResponse.fromDocument(activity, selection));
+    }
+
+    /**
+     * Until the typed ID backfill completes, older logs carry the course only in metadata
+     * (as a string or a number), so both fields are matched
+     */
+    private Criteria courseCriteria(Long studentId, Long courseId) {
+        if (activityIdBackfillService.isCompleted()) {
+            return Criteria.where("courseId").is(courseId).and("userId").is(studentId);
+        }
+        return Criteria.where("userId").is(studentId).orOperator(
+            Criteria.where("courseId").is(courseId),
+            Criteria.where("metadata.courseId").in(String.valueOf(courseId), courseId));
+    }
+
+    /**
+     * Fetch one extra document to know whether another page exists
+     */
+    private CursorPage<ActivityLog> findPageAfter(Criteria criteria, String cursor, int size, FieldSelection selection) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<ActivityLog> logs = activityLogRepository.findAfter(criteria, ActivityCursor.decode(cursor), false, limit + 1,
+            selection.documentFields());
+        boolean hasNext = logs.size() > limit;
+        List<ActivityLog> items = hasNext ? logs.subList(0, limit) : logs;
+        String nextCursor = hasNext ? ActivityCursor.of(items.get(items.size() - 1)).encode() : null;
+        return new CursorPage<>(items, limit, hasNext, nextCursor);
     }
 
     /**
      * Get last access time for all students in a course
      * Returns a map of studentId -> last access timestamp
+     * Served from the course_user_last_access read model (single indexed query)
      */
     public Map<Long, LocalDateTime> getCourseStudentsLastAccess(Long courseId) {
-        // Get all activities for this course (courseId stored as String in metadata)
-        String courseIdStr = String.valueOf(courseId);
-        List<ActivityLog> activities = activityLogRepository.findByCourseIdOrderByTimestampDesc(courseIdStr);
-        
-        // Group by userId and get the most recent timestamp for each
-        Map<Long, LocalDateTime> lastAccessMap = new HashMap<>();
-        
-        for (ActivityLog activity : activities) {
-            Long userId = activity.getUserId();
-            if (userId != null && !lastAccessMap.containsKey(userId)) {
-                // Convert Instant to LocalDateTime in Vietnam timezone
-                LocalDateTime accessTime = LocalDateTime.ofInstant(activity.getTimestamp(), VIETNAM_ZONE);
-                lastAccessMap.put(userId, accessTime);
-            }
-        }
-        
-        return lastAccessMap;
+        return courseLastAccessService.getLastAccess(courseId);
     }
 }
@@ -0,0 +1,113 @@
+package uth.edu.vn.lms_user_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis cache of per-bucket statistics partials.
+ *
+ * Only closed, aligned buckets are stored. They are immutable once the grace period for
+ * late events has passed, so they are kept without TTL and reused by every range that covers them.
+ */
+@Component
+public class ActivityStatsCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityStatsCache.class);
+    private static final String KEY_PREFIX = "activity:stats:v1:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Value("${app.activity.stats-cache.enabled:true}")
+    private boolean enabled;
+
+    // Late events (frontend batching, queue lag) can still land in a bucket shortly after it ends
+    @Value("${app.activity.stats-cache.close-grace:PT10M}")
+    private Duration closeGrace;
+
+    public ActivityStatsCache(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.hits = Counter.builder("activity.stats.bucket.cache")
+            .tag("result", "hit")
+            .description("Closed stats buckets served from Redis")
+            .register(meterRegistry);
+        this.misses = Counter.builder("activity.stats.bucket.cache")
+            .tag("result", "miss")
+            .description("Closed stats buckets computed from MongoDB")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Whether the bucket may be cached: aligned and ended before now minus the grace period
+     */
+    public boolean isCacheable(TimeBucket bucket) {
+        return enabled && bucket.isClosedBefore(Instant.now().minus(closeGrace));
+    }
+
+    /**
+     * Load cached partials for the given buckets with a single MGET.
+     * Missing or unreadable entries are absent from the returned map.
+     */
+    public Map<TimeBucket, ActivityStatsPartial> getAll(List<TimeBucket> buckets) {
+        Map<TimeBucket, ActivityStatsPartial> result = new HashMap<>();
+        if (!enabled || buckets.isEmpty()) {
+            return result;
+        }
+
+        List<String> keys = new ArrayList<>(buckets.size());
+        buckets.forEach(bucket -> keys.add(KEY_PREFIX + bucket.key()));
+
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(keys);
+            for (int i = 0; i < buckets.size(); i++) {
+                String json = values != null ? values.get(i) : null;
+                if (json == null) {
+                    misses.increment();
+                    continue;
+                }
+                try {
+                    result.put(buckets.get(i), objectMapper.readValue(json, ActivityStatsPartial.class));
+                    hits.increment();
+                } catch (Exception e) {
+                    log.warn("Discarding unreadable stats bucket {}: {}", keys.get(i), e.getMessage());
+                    misses.increment();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Redis stats cache read failed: {}", e.getMessage());
+            // Continue to MongoDB on cache failure
+        }
+        return result;
+    }
+
+    /**
+     * Store a closed bucket partial (no TTL - closed buckets never change)
+     */
+    public void put(TimeBucket bucket, ActivityStatsPartial partial) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + bucket.key(), objectMapper.writeValueAsString(partial));
+        } catch (Exception e) {
+            log.warn("Redis stats cache write failed for bucket {}: {}", bucket.key(), e.getMessage());
+            // Continue without caching on failure
+        }
+    }
+}
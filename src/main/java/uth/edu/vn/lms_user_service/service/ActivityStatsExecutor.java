@@ -0,0 +1,121 @@
+package uth.edu.vn.lms_user_service.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs statistics segments concurrently on virtual threads.
+ *
+ * Each request gets at most {@code parallelism} workers pulling segments from a shared queue;
+ * a global semaphore bounds how many MongoDB queries all requests together may run.
+ * Statistics partials are merged associatively, so segment order does not matter; other
+ * per-segment results are returned keyed by segment for the caller to combine in order.
+ * Cancelling the returned future interrupts the workers.
+ */
+@Component
+public class ActivityStatsExecutor {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int parallelism;
+    private final Semaphore queryPermits;
+
+    public ActivityStatsExecutor(
+            @Value("${app.activity.stats.parallelism:4}") int parallelism,
+            @Value("${app.activity.stats.max-concurrent-queries:16}") int maxConcurrentQueries) {
+        this.parallelism = Math.max(1, parallelism);
+        this.queryPermits = new Semaphore(Math.max(1, maxConcurrentQueries));
+    }
+
+    /**
+     * Compute every segment and merge the results
+     */
+    public CompletableFuture<ActivityStatsPartial> computeMerged(
+            List<TimeBucket> segments, Function<TimeBucket, ActivityStatsPartial> compute) {
+        CompletableFuture<Map<TimeBucket, ActivityStatsPartial>> all = computeAll(segments, compute);
+        CompletableFuture<ActivityStatsPartial> merged = all.thenApply(partials -> {
+            ActivityStatsPartial total = new ActivityStatsPartial();
+            partials.values().forEach(total::merge);
+            return total;
+        });
+        // Cancelling the merged future must still stop the workers
+        merged.whenComplete((total, ex) -> {
+            if (ex != null) {
+                all.cancel(true);
+            }
+        });
+        return merged;
+    }
+
+    /**
+     * Compute every segment and return the results keyed by segment
+     */
+    public <T> CompletableFuture<Map<TimeBucket, T>> computeAll(List<TimeBucket> segments, Function<TimeBucket, T> compute) {
+        Map<TimeBucket, T> results = new ConcurrentHashMap<>();
+        if (segments.isEmpty()) {
+            return CompletableFuture.completedFuture(results);
+        }
+
+        int workers = Math.min(parallelism, segments.size());
+        ConcurrentLinkedQueue<TimeBucket> queue = new ConcurrentLinkedQueue<>(segments);
+        AtomicInteger remaining = new AtomicInteger(workers);
+        CompletableFuture<Map<TimeBucket, T>> result = new CompletableFuture<>();
+        List<Future<?>> tasks = new ArrayList<>(workers);
+
+        for (int i = 0; i < workers; i++) {
+            tasks.add(executor.submit(() -> {
+                try {
+                    TimeBucket segment;
+                    while ((segment = queue.poll()) != null) {
+                        results.put(segment, computeWithPermit(segment, compute));
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        result.complete(results);
+                    }
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            }));
+        }
+
+        // Cancellation or a failed segment stops the remaining workers
+        result.whenComplete((all, ex) -> {
+            if (ex != null) {
+                tasks.forEach(task -> task.cancel(true));
+            }
+        });
+        return result;
+    }
+
+    private <T> T computeWithPermit(TimeBucket segment, Function<TimeBucket, T> compute)
+            throws InterruptedException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Statistics request cancelled");
+        }
+        queryPermits.acquire();
+        try {
+            return compute.apply(segment);
+        } finally {
+            queryPermits.release();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
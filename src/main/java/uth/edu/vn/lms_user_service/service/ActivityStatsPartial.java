@@ -0,0 +1,174 @@
+package uth.edu.vn.lms_user_service.service;
+
+import uth.edu.vn.lms_user_service.document.ActivityLog;
+import uth.edu.vn.lms_user_service.dto.ActivityStatsResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Mergeable intermediate state for {@link ActivityStatsResponse}.
+ *
+ * Every field combines associatively (sums, set unions, min/max), so partials for
+ * adjacent time buckets can be computed independently, cached, and merged in any order.
+ * Getters/setters exist so the partial can be stored as JSON in Redis.
+ */
+public class ActivityStatsPartial {
+
+    private static final int TOP_PAGES_LIMIT = 10;
+
+    private long totalActivities;
+    private Set<Long> userIds = new HashSet<>();
+    // sessionId -> [firstSeenMillis, lastSeenMillis, eventCount]
+    private Map<String, long[]> sessions = new HashMap<>();
+    private Map<String, Long> activityByType = new HashMap<>();
+    private Map<String, Long> pageViews = new HashMap<>();
+    private Map<Integer, Long> hourlyDistribution = new HashMap<>();
+
+    public ActivityStatsPartial() {}
+
+    /**
+     * Fold a single activity into this partial
+     */
+    public void add(ActivityLog activity, ZoneId zone) {
+        totalActivities++;
+
+        if (activity.getUserId() != null) {
+            userIds.add(activity.getUserId());
+        }
+
+        if (activity.getActivityType() != null) {
+            activityByType.merge(activity.getActivityType(), 1L, Long::sum);
+            if ("PAGE_VIEW".equals(activity.getActivityType()) && activity.getPageUrl() != null) {
+                pageViews.merge(activity.getPageUrl(), 1L, Long::sum);
+            }
+        }
+
+        Instant timestamp = activity.getTimestamp();
+        if (timestamp != null) {
+            hourlyDistribution.merge(timestamp.atZone(zone).getHour(), 1L, Long::sum);
+
+            if (activity.getSessionId() != null) {
+                long millis = timestamp.toEpochMilli();
+                sessions.merge(activity.getSessionId(), new long[]{millis, millis, 1}, ActivityStatsPartial::mergeSession);
+            }
+        } else if (activity.getSessionId() != null) {
+            // Session still counts as unique even without a usable timestamp
+            sessions.putIfAbsent(activity.getSessionId(), new long[]{Long.MAX_VALUE, Long.MIN_VALUE, 0});
+        }
+    }
+
+    /**
+     * Merge another partial into this one
+     */
+    public ActivityStatsPartial merge(ActivityStatsPartial other) {
+        totalActivities += other.totalActivities;
+        userIds.addAll(other.userIds);
+        other.sessions.forEach((id, bounds) -> sessions.merge(id, bounds.clone(), ActivityStatsPartial::mergeSession));
+        other.activityByType.forEach((k, v) -> activityByType.merge(k, v, Long::sum));
+        other.pageViews.forEach((k, v) -> pageViews.merge(k, v, Long::sum));
+        other.hourlyDistribution.forEach((k, v) -> hourlyDistribution.merge(k, v, Long::sum));
+        return this;
+    }
+
+    private static long[] mergeSession(long[] a, long[] b) {
+        a[0] = Math.min(a[0], b[0]);
+        a[1] = Math.max(a[1], b[1]);
+        a[2] = a[2] + b[2];
+        return a;
+    }
+
+    /**
+     * Build the API response from the merged state
+     */
+    public ActivityStatsResponse toResponse() {
+        Map<String, Long> topPages = pageViews.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .limit(TOP_PAGES_LIMIT)
+            .collect(Collectors.toMap(
+                Map.Entry::getKey,
+                Map.Entry::getValue,
+                (e1, e2) -> e1,
+                LinkedHashMap::new
+            ));
+
+        return new ActivityStatsResponse(
+            totalActivities,
+            (long) userIds.size(),
+            (long) sessions.size(),
+            avgSessionDurationMinutes(),
+            new LinkedHashMap<>(activityByType),
+            topPages,
+            new LinkedHashMap<>(new TreeMap<>(hourlyDistribution))
+        );
+    }
+
+    private double avgSessionDurationMinutes() {
+        double totalMinutes = 0;
+        int count = 0;
+        for (long[] bounds : sessions.values()) {
+            if (bounds[2] >= 2) {
+                totalMinutes += Duration.ofMillis(bounds[1] - bounds[0]).toMinutes();
+                count++;
+            }
+        }
+        return count > 0 ? totalMinutes / count : 0.0;
+    }
+
+    // Getters and Setters (JSON serialization for the bucket cache)
+    public long getTotalActivities() {
+        return totalActivities;
+    }
+
+    public void setTotalActivities(long totalActivities) {
+        this.totalActivities = totalActivities;
+    }
+
+    public Set<Long> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(Set<Long> userIds) {
+        this.userIds = userIds;
+    }
+
+    public Map<String, long[]> getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(Map<String, long[]> sessions) {
+        this.sessions = sessions;
+    }
+
+    public Map<String, Long> getActivityByType() {
+        return activityByType;
+    }
+
+    public void setActivityByType(Map<String, Long> activityByType) {
+        this.activityByType = activityByType;
+    }
+
+    public Map<String, Long> getPageViews() {
+        return pageViews;
+    }
+
+    public void setPageViews(Map<String, Long> pageViews) {
+        this.pageViews = pageViews;
+    }
+
+    public Map<Integer, Long> getHourlyDistribution() {
+        return hourlyDistribution;
+    }
+
+    public void setHourlyDistribution(Map<Integer, Long> hourlyDistribution) {
+        this.hourlyDistribution = hourlyDistribution;
+    }
+}
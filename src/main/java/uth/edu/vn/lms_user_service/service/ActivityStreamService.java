@@ -0,0 +1,168 @@
+package uth.edu.vn.lms_user_service.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uth.edu.vn.lms_user_service.dto.ActivityCursor;
+import uth.edu.vn.lms_user_service.dto.ActivityResponse;
+import uth.edu.vn.lms_user_service.dto.FieldSelection;
+import uth.edu.vn.lms_user_service.repository.ActivityLogRepository;
+import uth.edu.vn.lms_user_service.util.RawActivityJsonWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Streaming activity reads
+ *
+ * Documents are read from a MongoDB cursor as raw BSON and written straight into the
+ * response through {@link RawActivityJsonWriter}, so no ActivityLog or response object is
+ * materialized per row. Output matches the ApiResponse / CursorPage JSON of the regular endpoints.
+ */
+@Service
+public class ActivityStreamService {
+
+    private static final ZoneId VIETNAM_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+    private static final int MAX_RAW_PAGE_SIZE = 1000;
+    private static final int FLUSH_EVERY_ROWS = 100;
+
+    private final ActivityLogRepository activityLogRepository;
+    private final ObjectMapper objectMapper;
+
+    // Upper bound on events written by one session stream request; resume with the returned cursor
+    @Value("${app.activity.stream.max-limit:50000}")
+    private int maxStreamLimit;
+
+    public ActivityStreamService(ActivityLogRepository activityLogRepository, ObjectMapper objectMapper) {
+        this.activityLogRepository = activityLogRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Keyset page of a user's activities (newest first), streamed from raw BSON
+     * Cursor and fields are validated before the response starts
+     */
+    public StreamingResponseBody streamUserActivities(Long userId, String cursor, int size, String fields) {
+        ActivityCursor after = ActivityCursor.decode(cursor);
+        FieldSelection selection = ActivityResponse.fields(fields);
+        int limit = Math.max(1, Math.min(size, MAX_RAW_PAGE_SIZE));
+        Criteria criteria = Criteria.where("userId").is(userId);
+
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                RawActivityJsonWriter writer = new RawActivityJsonWriter(generator, VIETNAM_ZONE);
+                int[] written = {0};
+                boolean[] hasNext = {false};
+
+                generator.writeStartObject();
+                generator.writeNumberField("status", 200);
+                generator.writeBooleanField("success", true);
+                generator.writeStringField("message", "Activities retrieved");
+                generator.writeObjectFieldStart("data");
+                generator.writeArrayFieldStart("items");
+
+                // Read one extra document to know whether another page exists
+                activityLogRepository.streamRawAfter(criteria, after, false, limit + 1, selection.documentFields(), document -> {
+                    if (written[0] == limit) {
+                        hasNext[0] = true;
+                        return false;
+                    }
+                    try {
+                        writer.write(document);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    written[0]++;
+                    return true;
+                });
+
+                generator.writeEndArray();
+                generator.writeNumberField("size", limit);
+                generator.writeBooleanField("hasNext", hasNext[0]);
+                if (hasNext[0]) {
+                    generator.writeStringField("nextCursor", writer.lastCursor().encode());
+                }
+                generator.writeEndObject();
+                generator.writeStringField("timestamp", Instant.now().toString());
+                generator.writeEndObject();
+            }
+        };
+    }
+
+    /**
+     * Session timeline in chronological order, streamed from a MongoDB cursor
+     *
+     * NDJSON writes one activity per line and, when the limit cut the session short, a final
+     * {"hasNext":true,"nextCursor":...} line. JSON writes the regular ApiResponse / CursorPage
+     * envelope. Rows are flushed in small chunks; writes block while the client is slow, which
+     * stops reading from the cursor, so memory stays bounded by the cursor batch size.
+     */
+    public StreamingResponseBody streamSessionActivities(String sessionId, boolean ndjson, String cursor, int limit) {
+        ActivityCursor after = ActivityCursor.decode(cursor);
+        FieldSelection selection = ActivityResponse.fields(null);
+        int max = Math.max(1, Math.min(limit, maxStreamLimit));
+        Criteria criteria = Criteria.where("sessionId").is(sessionId);
+
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                RawActivityJsonWriter writer = new RawActivityJsonWriter(generator, VIETNAM_ZONE);
+                int[] written = {0};
+                boolean[] hasNext = {false};
+
+                if (!ndjson) {
+                    generator.writeStartObject();
+                    generator.writeNumberField("status", 200);
+                    generator.writeBooleanField("success", true);
+                    generator.writeStringField("message", "Session activities retrieved");
+                    generator.writeObjectFieldStart("data");
+                    generator.writeArrayFieldStart("items");
+                }
+
+                activityLogRepository.streamRawAfter(criteria, after, true, max + 1, selection.documentFields(), document -> {
+                    if (written[0] == max) {
+                        hasNext[0] = true;
+                        return false;
+                    }
+                    try {
+                        writer.write(document);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                        if (++written[0] % FLUSH_EVERY_ROWS == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return true;
+                });
+
+                String nextCursor = hasNext[0] ? writer.lastCursor().encode() : null;
+                if (ndjson) {
+                    if (nextCursor != null) {
+                        generator.writeStartObject();
+                        generator.writeBooleanField("hasNext", true);
+                        generator.writeStringField("nextCursor", nextCursor);
+                        generator.writeEndObject();
+                        generator.writeRaw('\n');
+                    }
+                    return;
+                }
+                generator.writeEndArray();
+                generator.writeNumberField("size", max);
+                generator.writeBooleanField("hasNext", hasNext[0]);
+                if (nextCursor != null) {
+                    generator.writeStringField("nextCursor", nextCursor);
+                }
+                generator.writeEndObject();
+                generator.writeStringField("timestamp", Instant.now().toString());
+                generator.writeEndObject();
+            }
+        };
+    }
+}
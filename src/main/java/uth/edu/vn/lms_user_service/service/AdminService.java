@@ -6,6 +6,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import uth.edu.vn.lms_user_service.cache.UserCache;
 import uth.edu.vn.lms_user_service.dto.AdminUserDTO;
 import uth.edu.vn.lms_user_service.entity.Role;
 import uth.edu.vn.lms_user_service.entity.User;
@@ -24,9 +25,11 @@ public class AdminService {
     private static final Logger log = LoggerFactory.getLogger(AdminService.class);
     
     private final UserRepository userRepository;
+    private final UserCache userCache;
 
-    public AdminService(UserRepository userRepository) {
+    public AdminService(UserRepository userRepository, UserCache userCache) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
     }
 
     /**
@@ -83,6 +86,7 @@ public class AdminService {
         Role oldRole = user.getRole();
         user.setRole(newRole);
         user = userRepository.save(user);
+        userCache.invalidate(userId);
 
         log.info("Admin: Đã cập nhật role user {} từ {} thành {}", userId, oldRole, newRole);
         return AdminUserDTO.fromUser(user);
@@ -99,6 +103,7 @@ public class AdminService {
 
         user.setEnabled(!user.isEnabled());
         user = userRepository.save(user);
+        userCache.invalidate(userId);
 
         log.info("Admin: User {} giờ {}", userId, user.isEnabled() ? "enabled" : "disabled");
         return AdminUserDTO.fromUser(user);
@@ -120,6 +125,7 @@ public class AdminService {
 
         user.setEnabled(false);
         userRepository.save(user);
+        userCache.invalidate(userId);
         
         log.info("Admin: Đã vô hiệu hóa user ID: {}", userId);
     }
@@ -0,0 +1,250 @@
+package uth.edu.vn.lms_user_service.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uth.edu.vn.lms_user_service.document.ApiLatencyRollup;
+import uth.edu.vn.lms_user_service.dto.ActivityMessage;
+import uth.edu.vn.lms_user_service.dto.ApiLatencyResponse;
+import uth.edu.vn.lms_user_service.repository.ApiLatencyRollupRepository;
+import uth.edu.vn.lms_user_service.util.LatencyHistogram;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * API latency histograms built from API_REQUEST / API_ERROR activity events.
+ *
+ * Events are aggregated in memory per (endpoint, method, hour) at ingestion and flushed
+ * periodically into {@link ApiLatencyRollup} documents with $inc, so every node adds into
+ * the same hourly histogram. Queries merge hourly rollups and never touch raw activity logs.
+ */
+@Service
+public class ApiLatencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiLatencyService.class);
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+    private static final Pattern UUID_SEGMENT = Pattern.compile(
+        "/[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}(?=/|$)");
+    private static final Pattern OBJECT_ID_SEGMENT = Pattern.compile("/[0-9a-fA-F]{24}(?=/|$)");
+    private static final String OVERFLOW_ENDPOINT = "_other";
+
+    private final MongoTemplate mongoTemplate;
+    private final ApiLatencyRollupRepository rollupRepository;
+    private final ConcurrentHashMap<RollupKey, HourlyAccumulator> pending = new ConcurrentHashMap<>();
+
+    // Bounds memory between flushes; further endpoints are folded into "_other"
+    @Value("${app.activity.latency.max-pending-keys:5000}")
+    private int maxPendingKeys;
+
+    public ApiLatencyService(MongoTemplate mongoTemplate, ApiLatencyRollupRepository rollupRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.rollupRepository = rollupRepository;
+    }
+
+    /**
+     * Record an ingested activity if it carries API timing data
+     */
+    public void record(ActivityMessage message) {
+        if (!"API_REQUEST".equals(message.activityType()) && !"API_ERROR".equals(message.activityType())) {
+            return;
+        }
+        if (message.responseTimeMs() == null && message.responseStatus() == null) {
+            return;
+        }
+
+        String method = message.httpMethod() != null ? message.httpMethod().toUpperCase(Locale.ROOT) : "UNKNOWN";
+        Instant hour = (message.timestamp() != null ? message.timestamp() : Instant.now()).truncatedTo(ChronoUnit.HOURS);
+        RollupKey key = new RollupKey(normalizeEndpoint(message.apiEndpoint()), method, hour);
+        if (pending.size() >= maxPendingKeys && !pending.containsKey(key)) {
+            key = new RollupKey(OVERFLOW_ENDPOINT, method, hour);
+        }
+
+        pending.compute(key, (k, accumulator) -> {
+            HourlyAccumulator acc = accumulator != null ? accumulator : new HourlyAccumulator();
+            acc.record(message);
+            return acc;
+        });
+    }
+
+    /**
+     * Flush pending histograms into MongoDB with one unordered bulk of $inc upserts
+     */
+    @Scheduled(fixedDelayString = "${app.activity.latency.flush-interval-ms:10000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<RollupKey, HourlyAccumulator>> drained = new ArrayList<>();
+        for (RollupKey key : pending.keySet()) {
+            HourlyAccumulator acc = pending.remove(key);
+            if (acc != null) {
+                drained.add(Map.entry(key, acc));
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ApiLatencyRollup.class);
+            for (var entry : drained) {
+                RollupKey key = entry.getKey();
+                String id = ApiLatencyRollup.idFor(key.endpoint(), key.httpMethod(), key.hour());
+                bulk.upsert(Query.query(Criteria.where("_id").is(id)), entry.getValue().toUpdate(key));
+            }
+            bulk.execute();
+            log.debug("Flushed {} API latency rollups", drained.size());
+        } catch (BulkOperationException e) {
+            // Unordered bulk: the other upserts are applied, so re-queuing them would double count
+            log.warn("Failed to flush {} of {} API latency rollups, will retry", e.getErrors().size(), drained.size());
+            e.getErrors().forEach(error -> {
+                var entry = drained.get(error.getIndex());
+                pending.merge(entry.getKey(), entry.getValue(), HourlyAccumulator::merge);
+            });
+        } catch (Exception e) {
+            log.warn("Failed to flush API latency rollups, will retry: {}", e.getMessage());
+            // Put counts back so the next flush retries them
+            drained.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), HourlyAccumulator::merge));
+        }
+    }
+
+    /**
+     * Latency percentiles and error rates for an endpoint over [start, end), merged from hourly rollups
+     */
+    public ApiLatencyResponse getLatency(String endpoint, String httpMethod, LocalDateTime start, LocalDateTime end) {
+        String normalized = normalizeEndpoint(endpoint);
+        Instant startHour = start.toInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.HOURS);
+        Instant endInstant = end.toInstant(ZoneOffset.UTC);
+
+        List<ApiLatencyRollup> rollups = httpMethod != null && !httpMethod.isBlank()
+            ? rollupRepository.findByEndpointAndHttpMethodAndHourRange(
+                normalized, httpMethod.toUpperCase(Locale.ROOT), startHour, endInstant)
+            : rollupRepository.findByEndpointAndHourRange(normalized, startHour, endInstant);
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        long count = 0, errors = 0, clientErrors = 0, sumMs = 0, maxMs = 0;
+        for (ApiLatencyRollup rollup : rollups) {
+            histogram.addCounts(rollup.getBuckets());
+            count += rollup.getCount();
+            errors += rollup.getErrorCount();
+            clientErrors += rollup.getClientErrorCount();
+            sumMs += rollup.getSumMs();
+            maxMs = Math.max(maxMs, rollup.getMaxMs());
+        }
+
+        long timed = histogram.getTotalCount();
+        return new ApiLatencyResponse(
+            normalized,
+            httpMethod,
+            count,
+            count > 0 ? (double) errors / count : 0.0,
+            count > 0 ? (double) clientErrors / count : 0.0,
+            timed > 0 ? (double) sumMs / timed : 0.0,
+            histogram.percentile(50),
+            histogram.percentile(95),
+            histogram.percentile(99),
+            maxMs
+        );
+    }
+
+    /**
+     * Replace path IDs with placeholders so per-resource URLs share one histogram
+     */
+    static String normalizeEndpoint(String endpoint) {
+        if (endpoint == null || endpoint.isBlank()) {
+            return "unknown";
+        }
+        String path = endpoint;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        path = UUID_SEGMENT.matcher(path).replaceAll("/{id}");
+        path = OBJECT_ID_SEGMENT.matcher(path).replaceAll("/{id}");
+        path = NUMERIC_SEGMENT.matcher(path).replaceAll("/{id}");
+        return path;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private record RollupKey(String endpoint, String httpMethod, Instant hour) {}
+
+    /**
+     * Per-key counters between flushes; only touched inside ConcurrentHashMap.compute/merge
+     */
+    private static final class HourlyAccumulator {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private long count;
+        private long errorCount;
+        private long clientErrorCount;
+        private long sumMs;
+        private long maxMs;
+
+        private void record(ActivityMessage message) {
+            count++;
+            Integer status = message.responseStatus();
+            if ((status != null && status >= 500) || (status == null && "API_ERROR".equals(message.activityType()))) {
+                errorCount++;
+            } else if (status != null && status >= 400) {
+                clientErrorCount++;
+            }
+            if (message.responseTimeMs() != null) {
+                long ms = Math.max(0, message.responseTimeMs());
+                histogram.record(ms);
+                sumMs += ms;
+                maxMs = Math.max(maxMs, ms);
+            }
+        }
+
+        private HourlyAccumulator merge(HourlyAccumulator other) {
+            histogram.merge(other.histogram);
+            count += other.count;
+            errorCount += other.errorCount;
+            clientErrorCount += other.clientErrorCount;
+            sumMs += other.sumMs;
+            maxMs = Math.max(maxMs, other.maxMs);
+            return this;
+        }
+
+        private Update toUpdate(RollupKey key) {
+            Update update = new Update()
+                .setOnInsert("endpoint", key.endpoint())
+                .setOnInsert("httpMethod", key.httpMethod())
+                .setOnInsert("hour", key.hour())
+                .inc("count", count)
+                .inc("errorCount", errorCount)
+                .inc("clientErrorCount", clientErrorCount)
+                .inc("sumMs", sumMs)
+                .max("maxMs", maxMs);
+            for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+                long bucketCount = histogram.countAt(i);
+                if (bucketCount > 0) {
+                    update.inc("buckets." + i, bucketCount);
+                }
+            }
+            return update;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import uth.edu.vn.lms_user_service.cache.UserCache;
 import uth.edu.vn.lms_user_service.config.JwtUtil;
 import uth.edu.vn.lms_user_service.dto.AuthResponse;
 import uth.edu.vn.lms_user_service.dto.LoginRequest;
@@ -33,15 +34,17 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
+    private final UserCache userCache;
 
     public AuthService(UserRepository userRepository, 
                        PasswordEncoder passwordEncoder, 
                        JwtUtil jwtUtil,
-                       AuthenticationManager authenticationManager) {
+                       AuthenticationManager authenticationManager, UserCache userCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
         this.authenticationManager = authenticationManager;
+        this.userCache = userCache;
     }
 
     @Transactional
@@ -69,6 +72,7 @@ public class AuthService {
         user.setEnabled(true);
 
         User savedUser = userRepository.save(user);
+        userCache.registered(savedUser.getId());
         log.info("User registered successfully: {}", savedUser.getUsername());
         
         return UserResponse.fromUser(savedUser);
@@ -86,9 +90,8 @@ public class AuthService {
 
         User user = (User) authentication.getPrincipal();
         
-        // Cập nhật lastLoginAt
-        user.setLastLoginAt(LocalDateTime.now());
-        userRepository.save(user);
+        // Cập nhật lastLoginAt (không tăng change_seq / updatedAt; không sửa entity để tránh flush)
+        userRepository.updateLastLoginAt(user.getId(), LocalDateTime.now());
         
         // Add userId and role to JWT claims
         Map<String, Object> extraClaims = new HashMap<>();
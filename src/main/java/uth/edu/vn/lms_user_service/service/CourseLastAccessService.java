@@ -0,0 +1,190 @@
+package uth.edu.vn.lms_user_service.service;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import uth.edu.vn.lms_user_service.document.ActivityLog;
+import uth.edu.vn.lms_user_service.document.BackfillCheckpoint;
+import uth.edu.vn.lms_user_service.document.CourseUserLastAccess;
+import uth.edu.vn.lms_user_service.repository.BackfillCheckpointRepository;
+import uth.edu.vn.lms_user_service.repository.CourseUserLastAccessRepository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Course last-access read model
+ *
+ * Write Path: ActivityConsumer -> upsert (courseId, userId) with $max(lastAccessAt)
+ * Read Path: single indexed query on course_user_last_access
+ */
+@Service
+public class CourseLastAccessService {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseLastAccessService.class);
+    private static final ZoneId VIETNAM_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final String REBUILD_JOB = "course-last-access";
+
+    private final MongoTemplate mongoTemplate;
+    private final CourseUserLastAccessRepository lastAccessRepository;
+    private final BackfillCheckpointRepository checkpointRepository;
+
+    @Value("${app.activity.last-access.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    public CourseLastAccessService(MongoTemplate mongoTemplate, CourseUserLastAccessRepository lastAccessRepository,
+                                   BackfillCheckpointRepository checkpointRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.lastAccessRepository = lastAccessRepository;
+        this.checkpointRepository = checkpointRepository;
+    }
+
+    /**
+     * Record a course access from an ingested activity (no-op without courseId or userId)
+     */
+    public void recordAccess(ActivityLog activity) {
+        Long courseId = activity.getCourseId();
+        if (courseId == null || activity.getUserId() == null || activity.getTimestamp() == null) {
+            return;
+        }
+        try {
+            mongoTemplate.upsert(
+                accessQuery(courseId, activity.getUserId()),
+                new Update().max("lastAccessAt", activity.getTimestamp()),
+                CourseUserLastAccess.class
+            );
+        } catch (Exception e) {
+            // The activity itself is already saved; do not requeue it for a read-model failure
+            log.warn("Failed to update last access for course {} user {}: {}",
+                courseId, activity.getUserId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Last access time for every student of a course (studentId -> Vietnam local time)
+     */
+    public Map<Long, LocalDateTime> getLastAccess(Long courseId) {
+        Map<Long, LocalDateTime> lastAccessMap = new HashMap<>();
+        for (CourseUserLastAccess access : lastAccessRepository.findByCourseId(courseId)) {
+            if (access.getLastAccessAt() != null) {
+                lastAccessMap.put(access.getUserId(), LocalDateTime.ofInstant(access.getLastAccessAt(), VIETNAM_ZONE));
+            }
+        }
+        return lastAccessMap;
+    }
+
+    /**
+     * Start or resume populating the read model from historical activity logs until the rebuild
+     * has completed once.
+     * Live ingestion fills the collection too, so completion is tracked by an explicit checkpoint
+     * rather than by the collection being non-empty. Runs in the background; upserts use $max so
+     * it is safe alongside live ingestion.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeRebuild() {
+        if (!rebuildOnStartup) {
+            return;
+        }
+        BackfillCheckpoint checkpoint;
+        try {
+            checkpoint = checkpointRepository.findById(REBUILD_JOB + ":0")
+                .orElseGet(() -> new BackfillCheckpoint(REBUILD_JOB, 0, null, null));
+        } catch (Exception e) {
+            log.warn("Skipping course last-access rebuild: {}", e.getMessage());
+            return;
+        }
+        if (checkpoint.isCompleted()) {
+            return;
+        }
+        Thread.ofVirtual().name("course-last-access-rebuild").start(() -> rebuild(checkpoint));
+    }
+
+    /**
+     * Rebuild the read model from scratch
+     */
+    public void rebuild() {
+        rebuild(new BackfillCheckpoint(REBUILD_JOB, 0, null, null));
+    }
+
+    /**
+     * Stream historical course activities in _id order, resuming after the checkpoint's lastId.
+     * The checkpoint advances after each flushed batch and is marked completed at the end.
+     */
+    private void rebuild(BackfillCheckpoint checkpoint) {
+        log.info("Rebuilding course last-access read model from activity logs{}",
+            checkpoint.getLastId() != null ? " after " + checkpoint.getLastId() : "");
+        Criteria criteria = Criteria.where("metadata.courseId").exists(true).and("userId").ne(null);
+        if (checkpoint.getLastId() != null) {
+            criteria = criteria.and("_id").gt(new ObjectId(checkpoint.getLastId()));
+        }
+        Query query = new Query(criteria)
+            .with(Sort.by(Sort.Direction.ASC, "_id"))
+            .cursorBatchSize(REBUILD_BATCH_SIZE);
+        query.fields().include("userId", "metadata.courseId", "timestamp");
+
+        Map<String, Instant> batch = new HashMap<>();
+        try (Stream<ActivityLog> stream = mongoTemplate.stream(query, ActivityLog.class)) {
+            var iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                ActivityLog activity = iterator.next();
+                Long courseId = activity.metadataAsLong("courseId");
+                if (courseId != null && activity.getTimestamp() != null) {
+                    batch.merge(courseId + ":" + activity.getUserId(), activity.getTimestamp(),
+                        (a, b) -> a.isAfter(b) ? a : b);
+                }
+                if (batch.size() >= REBUILD_BATCH_SIZE) {
+                    checkpoint.setProcessed(checkpoint.getProcessed() + flushBatch(batch));
+                    checkpoint.setLastId(activity.getId());
+                    saveCheckpoint(checkpoint);
+                }
+            }
+            checkpoint.setProcessed(checkpoint.getProcessed() + flushBatch(batch));
+            checkpoint.setCompleted(true);
+            saveCheckpoint(checkpoint);
+            log.info("Course last-access read model rebuilt: {} entries upserted", checkpoint.getProcessed());
+        } catch (Exception e) {
+            log.error("Course last-access rebuild failed, will resume on next startup: {}", e.getMessage(), e);
+        }
+    }
+
+    private void saveCheckpoint(BackfillCheckpoint checkpoint) {
+        checkpoint.setUpdatedAt(Instant.now());
+        checkpointRepository.save(checkpoint);
+    }
+
+    private int flushBatch(Map<String, Instant> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CourseUserLastAccess.class);
+        batch.forEach((key, lastAccess) -> {
+            int separator = key.indexOf(':');
+            Long courseId = Long.parseLong(key.substring(0, separator));
+            Long userId = Long.parseLong(key.substring(separator + 1));
+            bulk.upsert(accessQuery(courseId, userId), new Update().max("lastAccessAt", lastAccess));
+        });
+        bulk.execute();
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+
+    private static Query accessQuery(Long courseId, Long userId) {
+        return Query.query(Criteria.where("courseId").is(courseId).and("userId").is(userId));
+    }
+}
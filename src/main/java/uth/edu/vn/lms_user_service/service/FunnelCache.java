@@ -0,0 +1,92 @@
+package uth.edu.vn.lms_user_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis cache of per-day funnel transitions, keyed by course, step list and day.
+ *
+ * Same rules as {@link ActivityStatsCache}: only closed days past the grace period are
+ * stored, without TTL, since their events no longer change.
+ */
+@Component
+public class FunnelCache {
+
+    private static final Logger log = LoggerFactory.getLogger(FunnelCache.class);
+    private static final String KEY_PREFIX = "activity:funnel:v1:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.activity.stats-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.activity.stats-cache.close-grace:PT10M}")
+    private Duration closeGrace;
+
+    public FunnelCache(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    public boolean isCacheable(TimeBucket bucket) {
+        return enabled && bucket.granularity() == TimeBucket.Granularity.DAY
+            && bucket.isClosedBefore(Instant.now().minus(closeGrace));
+    }
+
+    /**
+     * Load cached days with a single MGET; missing or unreadable entries are absent
+     */
+    public Map<TimeBucket, FunnelTransitions> getAll(Long courseId, List<String> steps, List<TimeBucket> buckets) {
+        Map<TimeBucket, FunnelTransitions> result = new HashMap<>();
+        if (!enabled || buckets.isEmpty()) {
+            return result;
+        }
+
+        List<String> keys = new ArrayList<>(buckets.size());
+        buckets.forEach(bucket -> keys.add(key(courseId, steps, bucket)));
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(keys);
+            for (int i = 0; i < buckets.size(); i++) {
+                String json = values != null ? values.get(i) : null;
+                if (json == null) {
+                    continue;
+                }
+                try {
+                    result.put(buckets.get(i), objectMapper.readValue(json, FunnelTransitions.class));
+                } catch (Exception e) {
+                    log.warn("Discarding unreadable funnel bucket {}: {}", keys.get(i), e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Redis funnel cache read failed: {}", e.getMessage());
+        }
+        return result;
+    }
+
+    public void put(Long courseId, List<String> steps, TimeBucket bucket, FunnelTransitions transitions) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(key(courseId, steps, bucket), objectMapper.writeValueAsString(transitions));
+        } catch (Exception e) {
+            log.warn("Redis funnel cache write failed for bucket {}: {}", bucket.key(), e.getMessage());
+        }
+    }
+
+    private static String key(Long courseId, List<String> steps, TimeBucket bucket) {
+        return KEY_PREFIX + courseId + ":" + String.join(">", steps) + ":" + bucket.key();
+    }
+}
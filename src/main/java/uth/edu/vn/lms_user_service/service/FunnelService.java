@@ -0,0 +1,110 @@
+package uth.edu.vn.lms_user_service.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import uth.edu.vn.lms_user_service.dto.FunnelResponse;
+import uth.edu.vn.lms_user_service.entity.ActivityType;
+import uth.edu.vn.lms_user_service.exception.ApiException;
+import uth.edu.vn.lms_user_service.repository.ActivityLogRepository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Course funnel analysis: how many users went through an ordered list of activity types
+ *
+ * Each bucket of the window streams the course timeline grouped by user and runs a per-user
+ * state machine over it, producing composable {@link FunnelTransitions}. Closed days are cached
+ * in Redis; the transitions of all buckets are then chained in time order.
+ */
+@Service
+public class FunnelService {
+
+    private static final Logger log = LoggerFactory.getLogger(FunnelService.class);
+    private static final ZoneId VIETNAM_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+    private static final int MAX_STEPS = 10;
+
+    private final ActivityLogRepository activityLogRepository;
+    private final FunnelCache funnelCache;
+    private final ActivityStatsExecutor statsExecutor;
+
+    public FunnelService(ActivityLogRepository activityLogRepository, FunnelCache funnelCache,
+                         ActivityStatsExecutor statsExecutor) {
+        this.activityLogRepository = activityLogRepository;
+        this.funnelCache = funnelCache;
+        this.statsExecutor = statsExecutor;
+    }
+
+    /**
+     * Users reaching each step of the funnel within [start, end)
+     */
+    public FunnelResponse getFunnel(Long courseId, List<ActivityType> stepTypes, LocalDateTime start, LocalDateTime end) {
+        if (stepTypes == null || stepTypes.size() < 2 || stepTypes.size() > MAX_STEPS) {
+            throw ApiException.badRequest("A funnel needs between 2 and " + MAX_STEPS + " steps");
+        }
+        Instant startInstant = start.toInstant(ZoneOffset.UTC);
+        Instant endInstant = end.toInstant(ZoneOffset.UTC);
+        if (!startInstant.isBefore(endInstant)) {
+            throw ApiException.badRequest("start must be before end");
+        }
+
+        List<String> steps = stepTypes.stream().map(Enum::name).toList();
+        List<TimeBucket> buckets = TimeBucket.split(startInstant, endInstant, VIETNAM_ZONE, false);
+        List<TimeBucket> cacheable = buckets.stream().filter(funnelCache::isCacheable).toList();
+        Map<TimeBucket, FunnelTransitions> transitions = new HashMap<>(funnelCache.getAll(courseId, steps, cacheable));
+
+        List<TimeBucket> pending = buckets.stream().filter(bucket -> !transitions.containsKey(bucket)).toList();
+        log.debug("Funnel for course {}: {} buckets, {} from cache", courseId, buckets.size(), transitions.size());
+
+        HashSet<TimeBucket> cacheableSet = new HashSet<>(cacheable);
+        transitions.putAll(statsExecutor.computeAll(pending, bucket -> {
+            FunnelTransitions computed = computeTransitions(courseId, steps, bucket);
+            if (cacheableSet.contains(bucket)) {
+                funnelCache.put(courseId, steps, bucket, computed);
+            }
+            return computed;
+        }).join());
+
+        // Chain buckets in time order
+        Map<Long, Integer> states = new HashMap<>();
+        for (TimeBucket bucket : buckets) {
+            transitions.get(bucket).applyTo(states);
+        }
+
+        long[] reached = new long[steps.size() + 1];
+        states.values().forEach(state -> reached[state]++);
+        // reached[i] becomes "users that completed at least i steps"
+        for (int i = steps.size() - 1; i >= 1; i--) {
+            reached[i] += reached[i + 1];
+        }
+
+        List<FunnelResponse.Step> result = new ArrayList<>(steps.size());
+        for (int i = 0; i < steps.size(); i++) {
+            long users = reached[i + 1];
+            long previous = i == 0 ? users : reached[i];
+            result.add(new FunnelResponse.Step(
+                i + 1,
+                steps.get(i),
+                users,
+                previous > 0 ? (double) users / previous : 0.0,
+                reached[1] > 0 ? (double) users / reached[1] : 0.0
+            ));
+        }
+        return new FunnelResponse(courseId, start, end, result);
+    }
+
+    private FunnelTransitions computeTransitions(Long courseId, List<String> steps, TimeBucket bucket) {
+        FunnelTransitions.Builder builder = new FunnelTransitions.Builder(steps);
+        activityLogRepository.streamForFunnel(courseId, bucket.start(), bucket.end(), new HashSet<>(steps),
+            activity -> builder.accept(activity.getUserId(), activity.getActivityType()));
+        return builder.build();
+    }
+}
@@ -0,0 +1,117 @@
+package uth.edu.vn.lms_user_service.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Funnel progress made by each user within one time bucket.
+ *
+ * For every user with matching events, {@code transitions[s]} is the funnel state (number of
+ * steps completed) the user ends the bucket in when entering it in state {@code s}. Storing the
+ * whole transition function instead of a single end state makes buckets composable: a closed day
+ * can be cached once and chained with any earlier days. Users whose transition is the identity
+ * are omitted. JSON-friendly for the Redis cache.
+ */
+public class FunnelTransitions {
+
+    private int stepCount;
+    private Map<Long, byte[]> users = new HashMap<>();
+
+    public FunnelTransitions() {}
+
+    public FunnelTransitions(int stepCount) {
+        this.stepCount = stepCount;
+    }
+
+    /**
+     * Apply this bucket to the running per-user states (missing users start at state 0)
+     */
+    public void applyTo(Map<Long, Integer> states) {
+        users.forEach((userId, transition) -> {
+            int state = states.getOrDefault(userId, 0);
+            states.put(userId, (int) transition[state]);
+        });
+    }
+
+    /**
+     * Builds transitions from activities streamed grouped by user and in time order per user
+     */
+    static class Builder {
+        private final FunnelTransitions result;
+        private final List<String> steps;
+        private Long currentUser;
+        private byte[] current;
+
+        Builder(List<String> steps) {
+            this.steps = steps;
+            this.result = new FunnelTransitions(steps.size());
+        }
+
+        void accept(Long userId, String activityType) {
+            // Anonymous events have no funnel to advance (and null is not a valid JSON map key)
+            if (userId == null) {
+                return;
+            }
+            if (!userId.equals(currentUser)) {
+                flush();
+                currentUser = userId;
+                current = identity(steps.size());
+            }
+            // Advance every possible entry state in one pass over the event
+            for (int s = 0; s < current.length; s++) {
+                int state = current[s];
+                if (state < steps.size() && steps.get(state).equals(activityType)) {
+                    current[s] = (byte) (state + 1);
+                }
+            }
+        }
+
+        FunnelTransitions build() {
+            flush();
+            return result;
+        }
+
+        private void flush() {
+            if (currentUser != null && !isIdentity(current)) {
+                result.users.put(currentUser, current);
+            }
+            currentUser = null;
+            current = null;
+        }
+
+        private static byte[] identity(int stepCount) {
+            byte[] transition = new byte[stepCount + 1];
+            for (int s = 0; s <= stepCount; s++) {
+                transition[s] = (byte) s;
+            }
+            return transition;
+        }
+
+        private static boolean isIdentity(byte[] transition) {
+            for (int s = 0; s < transition.length; s++) {
+                if (transition[s] != s) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Getters and Setters
+    public int getStepCount() {
+        return stepCount;
+    }
+
+    public void setStepCount(int stepCount) {
+        this.stepCount = stepCount;
+    }
+
+    public Map<Long, byte[]> getUsers() {
+        return users;
+    }
+
+    public void setUsers(Map<Long, byte[]> users) {
+        this.users = users;
+    }
+}
@@ -0,0 +1,138 @@
+package uth.edu.vn.lms_user_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import uth.edu.vn.lms_user_service.exception.ApiException;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes {@link LiveActivityMetrics} snapshots to SSE subscribers once per second.
+ *
+ * The snapshot is built and serialized once per tick and shared by all subscribers.
+ * Each subscriber has at most one send in flight on a virtual thread; a subscriber that is
+ * still busy for too many consecutive ticks is considered slow and dropped.
+ */
+@Service
+public class LiveActivityBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveActivityBroadcaster.class);
+
+    private final LiveActivityMetrics metrics;
+    private final ObjectMapper objectMapper;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${app.activity.live.max-subscribers:200}")
+    private int maxSubscribers;
+
+    @Value("${app.activity.live.max-missed-ticks:5}")
+    private int maxMissedTicks;
+
+    @Value("${app.activity.live.emitter-timeout:PT30M}")
+    private Duration emitterTimeout;
+
+    public LiveActivityBroadcaster(LiveActivityMetrics metrics, ObjectMapper objectMapper) {
+        this.metrics = metrics;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Register a new SSE subscriber
+     */
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "TOO_MANY_SUBSCRIBERS",
+                "Live dashboard subscriber limit reached");
+        }
+
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribers.add(subscriber);
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> {
+            subscribers.remove(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        log.debug("Live dashboard subscriber added, total: {}", subscribers.size());
+        return emitter;
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public void broadcast() {
+        metrics.prune();
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(metrics.snapshot());
+        } catch (Exception e) {
+            log.warn("Failed to serialize live activity snapshot: {}", e.getMessage());
+            return;
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.sending.compareAndSet(false, true)) {
+                if (subscriber.missedTicks.incrementAndGet() > maxMissedTicks) {
+                    drop(subscriber);
+                }
+                continue;
+            }
+            subscriber.missedTicks.set(0);
+            sendExecutor.execute(() -> send(subscriber, payload));
+        }
+    }
+
+    private void send(Subscriber subscriber, String payload) {
+        try {
+            subscriber.emitter.send(SseEmitter.event().name("metrics").data(payload));
+        } catch (Exception e) {
+            subscribers.remove(subscriber);
+            log.debug("Live dashboard subscriber disconnected: {}", e.getMessage());
+        } finally {
+            subscriber.sending.set(false);
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            log.info("Dropping slow live dashboard subscriber after {} missed ticks", maxMissedTicks);
+            subscriber.emitter.complete();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        sendExecutor.shutdownNow();
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+        private final AtomicInteger missedTicks = new AtomicInteger();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package uth.edu.vn.lms_user_service.service;
+
+import org.springframework.stereotype.Component;
+import uth.edu.vn.lms_user_service.dto.LiveActivitySnapshot;
+import uth.edu.vn.lms_user_service.entity.ActivityType;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory sliding-window metrics for the live activity dashboard.
+ *
+ * Ingestion only increments striped counters ({@link LongAdder}) in a ring of one-second
+ * slots, so recording never blocks on readers. Memory is fixed by the ring size, the
+ * per-slot page cap and the number of users active in the last few minutes.
+ * Counts are per node: each instance sees the messages its consumer receives.
+ */
+@Component
+public class LiveActivityMetrics {
+
+    private static final int SLOTS = 60;
+    private static final int RATE_WINDOW_SECONDS = 10;
+    private static final int ACTIVE_USER_WINDOW_MINUTES = 5;
+    private static final int MAX_PAGES_PER_SLOT = 1000;
+    private static final int TOP_PAGES_LIMIT = 10;
+    private static final ActivityType[] TYPES = ActivityType.values();
+    private static final Map<String, Integer> TYPE_INDEX = new HashMap<>();
+
+    static {
+        for (ActivityType type : TYPES) {
+            TYPE_INDEX.put(type.name(), type.ordinal());
+        }
+    }
+
+    private final Slot[] slots = new Slot[SLOTS];
+    private final ConcurrentHashMap<Long, Long> lastSeenByUser = new ConcurrentHashMap<>();
+
+    public LiveActivityMetrics() {
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * Record one ingested activity at the current second
+     */
+    public void record(String activityType, Long userId, String pageUrl) {
+        long second = currentSecond();
+        Slot slot = slotFor(second);
+
+        int typeIndex = activityType != null ? TYPE_INDEX.getOrDefault(activityType, TYPES.length) : TYPES.length;
+        slot.byType[typeIndex].increment();
+
+        if ("PAGE_VIEW".equals(activityType) && pageUrl != null
+                && (slot.pages.size() < MAX_PAGES_PER_SLOT || slot.pages.containsKey(pageUrl))) {
+            slot.pages.computeIfAbsent(pageUrl, k -> new LongAdder()).increment();
+        }
+
+        if (userId != null) {
+            lastSeenByUser.put(userId, second);
+        }
+    }
+
+    /**
+     * Build a snapshot of the sliding windows. Rates use the last complete seconds only.
+     */
+    public LiveActivitySnapshot snapshot() {
+        long now = currentSecond();
+        long[] typeTotals = new long[TYPES.length + 1];
+        Map<String, Long> pageTotals = new HashMap<>();
+
+        for (int age = 1; age < SLOTS; age++) {
+            long second = now - age;
+            Slot slot = slots[index(second)];
+            if (slot.second != second) {
+                continue;
+            }
+            if (age <= RATE_WINDOW_SECONDS) {
+                for (int i = 0; i < typeTotals.length; i++) {
+                    typeTotals[i] += slot.byType[i].sum();
+                }
+            }
+            slot.pages.forEach((page, count) -> pageTotals.merge(page, count.sum(), Long::sum));
+        }
+
+        long total = 0;
+        Map<String, Double> ratesByType = new LinkedHashMap<>();
+        for (int i = 0; i < typeTotals.length; i++) {
+            total += typeTotals[i];
+            if (typeTotals[i] > 0) {
+                String name = i < TYPES.length ? TYPES[i].name() : "OTHER";
+                ratesByType.put(name, (double) typeTotals[i] / RATE_WINDOW_SECONDS);
+            }
+        }
+
+        Map<String, Long> topPages = pageTotals.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .limit(TOP_PAGES_LIMIT)
+            .collect(Collectors.toMap(
+                Map.Entry::getKey,
+                Map.Entry::getValue,
+                (e1, e2) -> e1,
+                LinkedHashMap::new
+            ));
+
+        return new LiveActivitySnapshot(
+            Instant.ofEpochSecond(now),
+            RATE_WINDOW_SECONDS,
+            (double) total / RATE_WINDOW_SECONDS,
+            ratesByType,
+            countActiveUsers(now),
+            ACTIVE_USER_WINDOW_MINUTES,
+            topPages
+        );
+    }
+
+    /**
+     * Drop users not seen within the active-user window
+     */
+    public void prune() {
+        long cutoff = currentSecond() - ACTIVE_USER_WINDOW_MINUTES * 60L;
+        lastSeenByUser.values().removeIf(lastSeen -> lastSeen < cutoff);
+    }
+
+    private long countActiveUsers(long now) {
+        long cutoff = now - ACTIVE_USER_WINDOW_MINUTES * 60L;
+        return lastSeenByUser.values().stream().filter(lastSeen -> lastSeen >= cutoff).count();
+    }
+
+    private Slot slotFor(long second) {
+        Slot slot = slots[index(second)];
+        if (slot.second != second) {
+            synchronized (slot) {
+                if (slot.second != second) {
+                    slot.resetTo(second);
+                }
+            }
+        }
+        return slot;
+    }
+
+    private static int index(long second) {
+        return (int) Math.floorMod(second, (long) SLOTS);
+    }
+
+    private static long currentSecond() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static final class Slot {
+        private volatile long second = -1;
+        private final LongAdder[] byType = new LongAdder[TYPES.length + 1];
+        private final ConcurrentHashMap<String, LongAdder> pages = new ConcurrentHashMap<>();
+
+        private Slot() {
+            for (int i = 0; i < byType.length; i++) {
+                byType[i] = new LongAdder();
+            }
+        }
+
+        private void resetTo(long newSecond) {
+            for (LongAdder adder : byType) {
+                adder.reset();
+            }
+            pages.clear();
+            second = newSecond;
+        }
+    }
+}
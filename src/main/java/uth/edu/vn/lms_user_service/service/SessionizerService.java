@@ -0,0 +1,424 @@
+package uth.edu.vn.lms_user_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uth.edu.vn.lms_user_service.document.ActivityLog;
+import uth.edu.vn.lms_user_service.document.UserSession;
+import uth.edu.vn.lms_user_service.dto.UserSessionResponse;
+import uth.edu.vn.lms_user_service.exception.ApiException;
+import uth.edu.vn.lms_user_service.repository.UserSessionRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * Server-side sessionization of the ingestion stream
+ *
+ * Each user's events belong to the current server session until the gap since their
+ * previous event exceeds the inactivity threshold; then the session is closed and a new
+ * one starts. The id is stamped on every activity_logs document as {@code serverSessionId},
+ * independent of the client sessionId (missing for system events, reused by long-lived tabs).
+ *
+ * Open sessions live in a bounded in-memory LRU and are checkpointed to Redis, so a restart
+ * (or an eviction) resumes the same session instead of splitting it. An evicted session stays
+ * resumable from memory until its checkpoint is written. Checkpointed sessions are indexed by
+ * last activity in a Redis sorted set, so a session whose user never returns is still closed.
+ * Only closed sessions are emitted, as one user_sessions aggregate each.
+ *
+ * All of a user's events reach the same node through the per-user activity partitions (see
+ * RabbitMQConfig). Sessions close on event time: the clock is the newest event time seen,
+ * advanced by wall time only while no events arrive, so draining an old backlog does not close
+ * every session between two of its events.
+ */
+@Service
+public class SessionizerService {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionizerService.class);
+    private static final String KEY_PREFIX = "activity:session:v1:";
+    private static final String OPEN_KEY = "activity:session:v1:open";
+    private static final int MAX_TRACKED_IDS = 20;
+    private static final int ABANDONED_BATCH_SIZE = 500;
+
+    private final UserSessionRepository sessionRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Map<Long, SessionState> sessions;
+    // Evicted from the LRU but not yet checkpointed; guarded by the sessions lock
+    private final Map<Long, SessionState> evicted = new HashMap<>();
+    private final Queue<UserSession> pendingEmits = new ConcurrentLinkedQueue<>();
+    private final Queue<SessionCheckpoint> pendingCheckpoints = new ConcurrentLinkedQueue<>();
+
+    private final long gapMillis;
+    private final LongSupplier clock;
+    // Newest event time seen and the wall time of the latest event; guarded by the sessions lock
+    private long watermark;
+    private long lastEventAt;
+
+    @Autowired
+    public SessionizerService(UserSessionRepository sessionRepository, StringRedisTemplate redisTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${app.activity.session.inactivity-gap:PT30M}") Duration inactivityGap,
+                              @Value("${app.activity.session.max-tracked-users:50000}") int maxTrackedUsers) {
+        this(sessionRepository, redisTemplate, objectMapper, inactivityGap, maxTrackedUsers, System::currentTimeMillis);
+    }
+
+    SessionizerService(UserSessionRepository sessionRepository, StringRedisTemplate redisTemplate,
+                       ObjectMapper objectMapper, Duration inactivityGap, int maxTrackedUsers, LongSupplier clock) {
+        this.sessionRepository = sessionRepository;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.gapMillis = inactivityGap.toMillis();
+        this.clock = clock;
+        // Bounded: the least recently active user is evicted; its checkpoint keeps the session resumable
+        this.sessions = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, SessionState> eldest) {
+                if (size() <= maxTrackedUsers) {
+                    return false;
+                }
+                evicted.put(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Stamp the activity with its user's server session; call before the activity is saved
+     */
+    public void assign(ActivityLog activity) {
+        Long userId = activity.getUserId();
+        if (userId == null) {
+            return;
+        }
+        long at = activity.getTimestamp() != null ? activity.getTimestamp().toEpochMilli() : clock.getAsLong();
+
+        boolean tracked;
+        synchronized (sessions) {
+            tracked = sessions.containsKey(userId) || evicted.containsKey(userId);
+        }
+        // Only users not in memory (restart, eviction, first event) pay for a Redis read
+        SessionState restored = tracked ? null : loadCheckpoint(userId);
+
+        String sessionId;
+        synchronized (sessions) {
+            long now = clock.getAsLong();
+            // Future-dated events (client clock skew) cannot push the clock past wall time
+            watermark = Math.max(watermark, Math.min(at, now));
+            lastEventAt = now;
+
+            SessionState state = sessions.get(userId);
+            if (state == null) {
+                state = evicted.remove(userId);
+            }
+            if (state == null) {
+                state = restored;
+            }
+            if (state != null && at - state.lastSeenAt > gapMillis) {
+                pendingEmits.add(state.toDocument());
+                state = null;
+            }
+            if (state == null) {
+                state = new SessionState(userId + "-" + Long.toString(at, 36), userId, at);
+            }
+            state.add(activity, at);
+            sessions.put(userId, state);
+            sessionId = state.id;
+        }
+        activity.setServerSessionId(sessionId);
+    }
+
+    /**
+     * Close sessions idle past the gap, emit their aggregates and checkpoint the open ones
+     */
+    @Scheduled(fixedDelayString = "${app.activity.session.flush-interval-ms:10000}")
+    public void flush() {
+        List<Long> closedUsers = new ArrayList<>();
+        Map<Long, SessionState> checkpointedEvictions = new HashMap<>();
+        long cutoff;
+        synchronized (sessions) {
+            cutoff = eventTime() - gapMillis;
+            Iterator<SessionState> it = sessions.values().iterator();
+            while (it.hasNext()) {
+                SessionState state = it.next();
+                if (state.lastSeenAt < cutoff) {
+                    pendingEmits.add(state.toDocument());
+                    closedUsers.add(state.userId);
+                    it.remove();
+                } else if (state.dirty) {
+                    pendingCheckpoints.add(state.toCheckpoint());
+                    state.dirty = false;
+                }
+            }
+            Iterator<SessionState> evictions = evicted.values().iterator();
+            while (evictions.hasNext()) {
+                SessionState state = evictions.next();
+                if (state.lastSeenAt < cutoff) {
+                    pendingEmits.add(state.toDocument());
+                    closedUsers.add(state.userId);
+                    evictions.remove();
+                } else {
+                    pendingCheckpoints.add(state.toCheckpoint());
+                    state.dirty = false;
+                    checkpointedEvictions.put(state.userId, state);
+                }
+            }
+        }
+        emitClosed();
+        if (writeCheckpoints()) {
+            synchronized (sessions) {
+                // Keep sessions that changed since the checkpoint was taken
+                checkpointedEvictions.forEach((userId, state) -> {
+                    if (!state.dirty) {
+                        evicted.remove(userId, state);
+                    }
+                });
+            }
+        }
+        if (!closedUsers.isEmpty()) {
+            try {
+                redisTemplate.delete(closedUsers.stream().map(id -> KEY_PREFIX + id).toList());
+                redisTemplate.opsForZSet().remove(OPEN_KEY, closedUsers.stream().map(String::valueOf).toArray());
+            } catch (Exception e) {
+                // Stale checkpoints expire on their own and are ignored once past the gap
+                log.warn("Failed to delete session checkpoints: {}", e.getMessage());
+            }
+        }
+        closeAbandoned(cutoff);
+    }
+
+    /**
+     * Current event time: the watermark plus the wall time since the latest event (before any
+     * event, plain wall time). Only called while holding the sessions lock.
+     */
+    private long eventTime() {
+        long now = clock.getAsLong();
+        return Math.min(now, watermark + (now - lastEventAt));
+    }
+
+    /**
+     * Close checkpointed sessions idle past the gap that no node holds in memory (the user has
+     * not come back since a restart or eviction). Removing the user from the open set claims the
+     * session, so only one node emits it.
+     */
+    private void closeAbandoned(long cutoff) {
+        try {
+            Set<String> candidates = redisTemplate.opsForZSet().rangeByScore(OPEN_KEY, 0, cutoff, 0, ABANDONED_BATCH_SIZE);
+            if (candidates == null || candidates.isEmpty()) {
+                return;
+            }
+            for (String member : candidates) {
+                Long userId = Long.valueOf(member);
+                synchronized (sessions) {
+                    if (sessions.containsKey(userId) || evicted.containsKey(userId)) {
+                        continue;
+                    }
+                }
+                Long claimed = redisTemplate.opsForZSet().remove(OPEN_KEY, member);
+                if (claimed == null || claimed == 0) {
+                    continue;
+                }
+                SessionState state = loadCheckpoint(userId);
+                if (state == null) {
+                    continue;
+                }
+                if (state.lastSeenAt < cutoff) {
+                    pendingEmits.add(state.toDocument());
+                    redisTemplate.delete(KEY_PREFIX + userId);
+                } else {
+                    // Continued on another node since the set was read
+                    redisTemplate.opsForZSet().add(OPEN_KEY, member, state.lastSeenAt);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to close abandoned sessions: {}", e.getMessage());
+        }
+        emitClosed();
+    }
+
+    private void emitClosed() {
+        List<UserSession> batch = new ArrayList<>();
+        UserSession session;
+        while ((session = pendingEmits.poll()) != null) {
+            batch.add(session);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            sessionRepository.saveAll(batch);
+        } catch (Exception e) {
+            log.warn("Failed to emit {} user sessions, will retry: {}", batch.size(), e.getMessage());
+            pendingEmits.addAll(batch);
+        }
+    }
+
+    private boolean writeCheckpoints() {
+        Map<Long, SessionCheckpoint> latest = new HashMap<>();
+        SessionCheckpoint checkpoint;
+        while ((checkpoint = pendingCheckpoints.poll()) != null) {
+            latest.merge(checkpoint.userId(), checkpoint,
+                (a, b) -> a.lastSeenAt() >= b.lastSeenAt() ? a : b);
+        }
+        if (latest.isEmpty()) {
+            return true;
+        }
+        // Checkpoints only matter while the session can still continue
+        Duration ttl = Duration.ofMillis(gapMillis * 2);
+        try {
+            for (SessionCheckpoint cp : latest.values()) {
+                redisTemplate.opsForValue().set(KEY_PREFIX + cp.userId(), objectMapper.writeValueAsString(cp), ttl);
+                redisTemplate.opsForZSet().add(OPEN_KEY, String.valueOf(cp.userId()), cp.lastSeenAt());
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to checkpoint {} sessions: {}", latest.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private SessionState loadCheckpoint(Long userId) {
+        try {
+            String json = redisTemplate.opsForValue().get(KEY_PREFIX + userId);
+            return json != null ? SessionState.fromCheckpoint(objectMapper.readValue(json, SessionCheckpoint.class)) : null;
+        } catch (Exception e) {
+            log.warn("Ignoring session checkpoint of user {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Closed sessions of a user that started in [start, end), newest first
+     */
+    public List<UserSessionResponse> getUserSessions(Long userId, LocalDateTime start, LocalDateTime end) {
+        Instant startInstant = start.toInstant(ZoneOffset.UTC);
+        Instant endInstant = end.toInstant(ZoneOffset.UTC);
+        if (!startInstant.isBefore(endInstant)) {
+            throw ApiException.badRequest("start must be before end");
+        }
+        return sessionRepository.findByUserIdAndStartedAtBetweenOrderByStartedAtDesc(userId, startInstant, endInstant)
+            .stream()
+            .map(UserSessionResponse::fromDocument)
+            .toList();
+    }
+
+    /**
+     * Keep open sessions resumable across the restart; they are closed by whichever node sees them next
+     */
+    @PreDestroy
+    public void shutdown() {
+        synchronized (sessions) {
+            sessions.values().forEach(state -> pendingCheckpoints.add(state.toCheckpoint()));
+            evicted.values().forEach(state -> pendingCheckpoints.add(state.toCheckpoint()));
+        }
+        emitClosed();
+        writeCheckpoints();
+    }
+
+    /**
+     * Serialized open session kept in Redis
+     */
+    public record SessionCheckpoint(
+        String id,
+        Long userId,
+        long startedAt,
+        long lastSeenAt,
+        long eventCount,
+        Map<String, Long> activityCounts,
+        List<String> clientSessionIds,
+        List<Long> courseIds
+    ) {}
+
+    /**
+     * Open session; only touched while holding the sessions lock
+     */
+    private static final class SessionState {
+        private final String id;
+        private final Long userId;
+        private final long startedAt;
+        private long lastSeenAt;
+        private long eventCount;
+        private final Map<String, Long> activityCounts = new HashMap<>();
+        private final List<String> clientSessionIds = new ArrayList<>();
+        private final List<Long> courseIds = new ArrayList<>();
+        private boolean dirty;
+
+        private SessionState(String id, Long userId, long startedAt) {
+            this.id = id;
+            this.userId = userId;
+            this.startedAt = startedAt;
+            this.lastSeenAt = startedAt;
+        }
+
+        private void add(ActivityLog activity, long at) {
+            lastSeenAt = Math.max(lastSeenAt, at);
+            eventCount++;
+            if (activity.getActivityType() != null) {
+                activityCounts.merge(activity.getActivityType(), 1L, Long::sum);
+            }
+            String clientSessionId = activity.getSessionId();
+            if (clientSessionId != null && clientSessionIds.size() < MAX_TRACKED_IDS
+                    && !clientSessionIds.contains(clientSessionId)) {
+                clientSessionIds.add(clientSessionId);
+            }
+            Long courseId = activity.getCourseId();
+            if (courseId != null && courseIds.size() < MAX_TRACKED_IDS && !courseIds.contains(courseId)) {
+                courseIds.add(courseId);
+            }
+            dirty = true;
+        }
+
+        private UserSession toDocument() {
+            UserSession session = new UserSession();
+            session.setId(id);
+            session.setUserId(userId);
+            session.setStartedAt(Instant.ofEpochMilli(startedAt));
+            session.setEndedAt(Instant.ofEpochMilli(lastSeenAt));
+            session.setDurationMs(lastSeenAt - startedAt);
+            session.setEventCount(eventCount);
+            session.setActivityCounts(new HashMap<>(activityCounts));
+            session.setClientSessionIds(List.copyOf(clientSessionIds));
+            session.setCourseIds(List.copyOf(courseIds));
+            return session;
+        }
+
+        private SessionCheckpoint toCheckpoint() {
+            return new SessionCheckpoint(id, userId, startedAt, lastSeenAt, eventCount,
+                new HashMap<>(activityCounts), List.copyOf(clientSessionIds), List.copyOf(courseIds));
+        }
+
+        private static SessionState fromCheckpoint(SessionCheckpoint checkpoint) {
+            SessionState state = new SessionState(checkpoint.id(), checkpoint.userId(), checkpoint.startedAt());
+            state.lastSeenAt = checkpoint.lastSeenAt();
+            state.eventCount = checkpoint.eventCount();
+            if (checkpoint.activityCounts() != null) {
+                state.activityCounts.putAll(checkpoint.activityCounts());
+            }
+            if (checkpoint.clientSessionIds() != null) {
+                state.clientSessionIds.addAll(checkpoint.clientSessionIds());
+            }
+            if (checkpoint.courseIds() != null) {
+                state.courseIds.addAll(checkpoint.courseIds());
+            }
+            return state;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package uth.edu.vn.lms_user_service.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A half-open time range [start, end) produced by splitting a query range
+ * into calendar-aligned pieces.
+ *
+ * Aligned buckets (DAY / HOUR) never change once they are in the past, so their
+ * aggregates can be cached. Unaligned edges (RAW) are always computed live.
+ */
+public record TimeBucket(Instant start, Instant end, Granularity granularity) {
+
+    public enum Granularity { DAY, HOUR, RAW }
+
+    public boolean isAligned() {
+        return granularity != Granularity.RAW;
+    }
+
+    /**
+     * A bucket is closed when it is aligned and ended before the given cutoff
+     */
+    public boolean isClosedBefore(Instant cutoff) {
+        return isAligned() && !end.isAfter(cutoff);
+    }
+
+    /**
+     * Stable identifier for caches, e.g. "DAY:1760806800"
+     */
+    public String key() {
+        return granularity.name() + ":" + start.getEpochSecond();
+    }
+
+    /**
+     * Split [start, end) into whole days, then whole hours, with unaligned edges left as RAW pieces.
+     * Days are aligned on midnight of the given zone.
+     */
+    public static List<TimeBucket> split(Instant start, Instant end, ZoneId zone) {
+        return split(start, end, zone, true);
+    }
+
+    /**
+     * Split [start, end) into whole days; when {@code useHours} is false everything that is
+     * not a whole day is returned as RAW pieces.
+     */
+    public static List<TimeBucket> split(Instant start, Instant end, ZoneId zone, boolean useHours) {
+        List<TimeBucket> buckets = new ArrayList<>();
+        Instant cursor = start;
+
+        while (cursor.isBefore(end)) {
+            Instant dayStart = cursor.atZone(zone).truncatedTo(ChronoUnit.DAYS).toInstant();
+            Instant nextDay = cursor.atZone(zone).truncatedTo(ChronoUnit.DAYS).plusDays(1).toInstant();
+
+            if (dayStart.equals(cursor) && !nextDay.isAfter(end)) {
+                buckets.add(new TimeBucket(cursor, nextDay, Granularity.DAY));
+                cursor = nextDay;
+                continue;
+            }
+
+            if (useHours) {
+                Instant hourStart = cursor.truncatedTo(ChronoUnit.HOURS);
+                Instant nextHour = hourStart.plus(Duration.ofHours(1));
+                if (hourStart.equals(cursor) && !nextHour.isAfter(end)) {
+                    buckets.add(new TimeBucket(cursor, nextHour, Granularity.HOUR));
+                    cursor = nextHour;
+                    continue;
+                }
+                Instant rawEnd = nextHour.isAfter(end) ? end : nextHour;
+                buckets.add(new TimeBucket(cursor, rawEnd, Granularity.RAW));
+                cursor = rawEnd;
+            } else {
+                Instant rawEnd = nextDay.isAfter(end) ? end : nextDay;
+                buckets.add(new TimeBucket(cursor, rawEnd, Granularity.RAW));
+                cursor = rawEnd;
+            }
+        }
+
+        return coalesceRaw(buckets);
+    }
+
+    /**
+     * Merge adjacent RAW pieces so live queries stay as few as possible
+     */
+    private static List<TimeBucket> coalesceRaw(List<TimeBucket> buckets) {
+        List<TimeBucket> result = new ArrayList<>(buckets.size());
+        for (TimeBucket bucket : buckets) {
+            if (!result.isEmpty()) {
+                TimeBucket last = result.getLast();
+                if (!last.isAligned() && !bucket.isAligned() && last.end().equals(bucket.start())) {
+                    result.set(result.size() - 1, new TimeBucket(last.start(), bucket.end(), Granularity.RAW));
+                    continue;
+                }
+            }
+            result.add(bucket);
+        }
+        return result;
+    }
+}
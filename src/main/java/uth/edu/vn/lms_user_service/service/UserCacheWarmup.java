@@ -0,0 +1,160 @@
+package uth.edu.vn.lms_user_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import uth.edu.vn.lms_user_service.entity.Role;
+import uth.edu.vn.lms_user_service.repository.UserRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Preloads the profile cache (Redis and the in-process L1) before the instance takes traffic
+ *
+ * Runs as the last ApplicationRunner. Spring Boot only reports readiness (ACCEPTING_TRAFFIC)
+ * after all runners return, so a load balancer routing on /actuator/health/readiness keeps
+ * this node out of rotation until warm-up completes or hits its timeout.
+ *
+ * Loads active teachers and the most recently logged-in users through the normal batch
+ * lookup path, a few batches in parallel; users already in Redis cost no database query.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class UserCacheWarmup implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(UserCacheWarmup.class);
+
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.cache.warmup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.cache.warmup.active-within:P7D}")
+    private Duration activeWithin;
+
+    @Value("${app.cache.warmup.max-users:20000}")
+    private int maxUsers;
+
+    @Value("${app.cache.warmup.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.cache.warmup.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.cache.warmup.timeout:PT60S}")
+    private Duration timeout;
+
+    public UserCacheWarmup(UserRepository userRepository, UserService userService, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        AtomicLong loaded = new AtomicLong();
+        String outcome = "completed";
+        try {
+            List<List<Long>> batches = partition(warmupIds());
+            outcome = loadAll(batches, loaded, started + timeout.toNanos());
+        } catch (Exception e) {
+            outcome = "failed";
+            log.warn("Profile cache warm-up failed: {}", e.getMessage());
+        }
+
+        long elapsed = System.nanoTime() - started;
+        Timer.builder("user.profile.cache.warmup.duration")
+            .tag("outcome", outcome)
+            .description("Time spent preloading the profile cache at startup")
+            .register(meterRegistry)
+            .record(elapsed, TimeUnit.NANOSECONDS);
+        Counter.builder("user.profile.cache.warmup.entries")
+            .tag("outcome", outcome)
+            .description("Profiles preloaded into the cache at startup")
+            .register(meterRegistry)
+            .increment(loaded.get());
+        log.info("Profile cache warm-up {}: {} profiles in {} ms", outcome, loaded.get(),
+            TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * Active teachers first (resolved by course-service on most requests), then recent logins
+     */
+    private Set<Long> warmupIds() {
+        Set<Long> ids = new LinkedHashSet<>(userRepository.findActiveIdsByRole(Role.TEACHER));
+        int remaining = Math.max(0, maxUsers - ids.size());
+        if (remaining > 0) {
+            ids.addAll(userRepository.findRecentlyActiveIds(
+                LocalDateTime.now().minus(activeWithin), PageRequest.of(0, remaining)));
+        }
+        return ids;
+    }
+
+    private List<List<Long>> partition(Set<Long> ids) {
+        List<List<Long>> batches = new ArrayList<>();
+        List<Long> batch = new ArrayList<>(batchSize);
+        for (Long id : ids) {
+            batch.add(id);
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * At most `parallelism` batch queries in flight; batches not finished by the deadline are cancelled
+     */
+    private String loadAll(List<List<Long>> batches, AtomicLong loaded, long deadline) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, Thread.ofVirtual().name("cache-warmup-", 0).factory());
+        try {
+            List<Future<?>> futures = new ArrayList<>(batches.size());
+            for (List<Long> batch : batches) {
+                futures.add(pool.submit(() -> loaded.addAndGet(userService.getUsersByIds(batch).size())));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    return "timed-out";
+                } catch (ExecutionException e) {
+                    log.warn("Profile cache warm-up batch failed: {}", e.getCause().getMessage());
+                }
+            }
+            return "completed";
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
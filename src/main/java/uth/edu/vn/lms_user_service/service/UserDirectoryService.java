@@ -0,0 +1,263 @@
+package uth.edu.vn.lms_user_service.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uth.edu.vn.lms_user_service.dto.ApiResponse;
+import uth.edu.vn.lms_user_service.dto.CursorPage;
+import uth.edu.vn.lms_user_service.dto.UserResponse;
+import uth.edu.vn.lms_user_service.entity.Role;
+import uth.edu.vn.lms_user_service.exception.ApiException;
+import uth.edu.vn.lms_user_service.repository.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed directories of active teachers and students
+ *
+ * Each directory is a snapshot: the users sorted by id, the serialized response body, and an
+ * ETag derived from the serialized users (so unchanged content keeps its ETag across rebuilds
+ * and nodes). Snapshots live in memory and in Redis {@code user:directory:<role>}.
+ *
+ * Any user write or registration (the profile cache's pub/sub channels) marks the directories
+ * dirty. A scheduled task rebuilds dirty or old snapshots: one node, holding a short Redis lock,
+ * rebuilds from Postgres and publishes to Redis; the others adopt that copy. Requests always
+ * get the current snapshot, so a change shows up after at most one refresh interval.
+ */
+@Service
+public class UserDirectoryService implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDirectoryService.class);
+    private static final String KEY_PREFIX = "user:directory:";
+    private static final String LOCK_PREFIX = "user:directory:lock:";
+    private static final List<Role> DIRECTORIES = List.of(Role.TEACHER, Role.STUDENT);
+
+    /**
+     * @param users users sorted by id
+     * @param ids   the same ids, for binary search by keyset cursor
+     * @param body  serialized full response
+     */
+    public record Snapshot(String etag, long builtAt, List<UserResponse> users, long[] ids, byte[] body) {}
+
+    /**
+     * Serialized response and its ETag
+     */
+    public record Body(String etag, byte[] bytes) {}
+
+    private final UserRepository userRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Map<Role, Snapshot> snapshots = new ConcurrentHashMap<>();
+    // Local time of the latest change not yet covered by a snapshot; absent when clean
+    private final Map<Role, Long> dirtySince = new ConcurrentHashMap<>();
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${app.directory.max-age:PT10M}")
+    private Duration maxAge;
+
+    @Value("${app.directory.page.max-limit:1000}")
+    private int maxPageLimit;
+
+    public UserDirectoryService(UserRepository userRepository, StringRedisTemplate redisTemplate,
+                                ObjectMapper objectMapper) {
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Current snapshot; built (or adopted from Redis) on first use
+     */
+    public Snapshot snapshot(Role role) {
+        Snapshot current = snapshots.get(role);
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshots.get(role);
+            if (current == null) {
+                current = readShared(role);
+                if (current == null) {
+                    current = rebuild(role);
+                }
+                snapshots.put(role, current);
+            }
+            return current;
+        }
+    }
+
+    public Body fullBody(Role role) {
+        Snapshot snapshot = snapshot(role);
+        return new Body(snapshot.etag(), snapshot.body());
+    }
+
+    /**
+     * Keyset page of users with id > after; the ETag is tied to the snapshot and the page bounds
+     */
+    public Body page(Role role, Long after, int limit) {
+        if (limit < 1 || limit > maxPageLimit) {
+            throw ApiException.badRequest("limit must be between 1 and " + maxPageLimit);
+        }
+        Snapshot snapshot = snapshot(role);
+        long cursor = after != null ? after : Long.MIN_VALUE;
+        int from = Arrays.binarySearch(snapshot.ids(), cursor);
+        from = from >= 0 ? from + 1 : -from - 1;
+        int to = Math.min(from + limit, snapshot.users().size());
+
+        List<UserResponse> items = snapshot.users().subList(from, to);
+        boolean hasNext = to < snapshot.users().size();
+        String nextCursor = hasNext ? String.valueOf(snapshot.ids()[to - 1]) : null;
+        byte[] bytes = serialize(ApiResponse.success(message(role),
+            new CursorPage<>(items, items.size(), hasNext, nextCursor)));
+        String etag = "\"" + snapshot.etag().replace("\"", "") + "-" + (after != null ? after : "") + "-" + limit + "\"";
+        return new Body(etag, bytes);
+    }
+
+    /**
+     * User written or registered somewhere in the cluster; role or status may have changed
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        long now = System.currentTimeMillis();
+        DIRECTORIES.forEach(role -> dirtySince.put(role, now));
+    }
+
+    @Scheduled(fixedDelayString = "${app.directory.refresh-interval-ms:10000}")
+    public void refresh() {
+        for (Role role : DIRECTORIES) {
+            Snapshot current = snapshots.get(role);
+            if (current == null) {
+                // Not requested on this node yet
+                continue;
+            }
+            Long changedAt = dirtySince.get(role);
+            boolean old = System.currentTimeMillis() - current.builtAt() > maxAge.toMillis();
+            if (changedAt == null && !old) {
+                continue;
+            }
+            try {
+                long newerThan = changedAt != null ? changedAt : current.builtAt();
+                Snapshot next = readShared(role);
+                if (next == null || next.builtAt() <= newerThan) {
+                    next = tryRebuild(role);
+                }
+                if (next != null) {
+                    snapshots.put(role, next);
+                    if (changedAt != null && next.builtAt() > changedAt) {
+                        // Keeps a change that arrived during the rebuild
+                        dirtySince.remove(role, changedAt);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Directory refresh failed for {}: {}", role, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rebuild under the cluster-wide lock, or null when another node holds it (adopt its copy next time)
+     */
+    private Snapshot tryRebuild(Role role) {
+        String lockKey = LOCK_PREFIX + role;
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(lockKey, nodeId, Duration.ofMinutes(1));
+        if (Boolean.FALSE.equals(locked)) {
+            return null;
+        }
+        try {
+            return rebuild(role);
+        } finally {
+            if (nodeId.equals(redisTemplate.opsForValue().get(lockKey))) {
+                redisTemplate.delete(lockKey);
+            }
+        }
+    }
+
+    private Snapshot rebuild(Role role) {
+        long started = System.currentTimeMillis();
+        List<UserResponse> users = userRepository.findActiveUsersByRole(role).stream()
+            .map(UserResponse::fromUser)
+            .sorted(Comparator.comparing(UserResponse::id))
+            .toList();
+        String data = new String(serialize(users), StandardCharsets.UTF_8);
+        Snapshot snapshot = snapshot(role, users, data, started);
+        writeShared(role, snapshot, data);
+        log.info("Directory {} rebuilt: {} users, {} bytes in {} ms", role, users.size(), snapshot.body().length,
+            System.currentTimeMillis() - started);
+        return snapshot;
+    }
+
+    private Snapshot snapshot(Role role, List<UserResponse> users, String data, long builtAt) {
+        long[] ids = users.stream().mapToLong(UserResponse::id).toArray();
+        byte[] body = serialize(ApiResponse.success(message(role), new RawValue(data)));
+        return new Snapshot(etag(data), builtAt, users, ids, body);
+    }
+
+    private void writeShared(Role role, Snapshot snapshot, String data) {
+        try {
+            redisTemplate.opsForHash().putAll(KEY_PREFIX + role, Map.of(
+                "builtAt", String.valueOf(snapshot.builtAt()),
+                "data", data));
+        } catch (Exception e) {
+            log.warn("Failed to publish directory {} to Redis: {}", role, e.getMessage());
+        }
+    }
+
+    private Snapshot readShared(Role role) {
+        try {
+            Map<Object, Object> shared = redisTemplate.opsForHash().entries(KEY_PREFIX + role);
+            if (shared.isEmpty()) {
+                return null;
+            }
+            long builtAt = Long.parseLong((String) shared.get("builtAt"));
+            Snapshot current = snapshots.get(role);
+            if (current != null && builtAt <= current.builtAt()) {
+                return current;
+            }
+            String data = (String) shared.get("data");
+            List<UserResponse> users = objectMapper.readValue(data, new TypeReference<>() {});
+            return snapshot(role, users, data, builtAt);
+        } catch (Exception e) {
+            log.warn("Failed to read directory {} from Redis: {}", role, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String message(Role role) {
+        return role == Role.TEACHER ? "Teachers retrieved successfully" : "Students retrieved successfully";
+    }
+
+    private static String etag(String data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data.getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot serialize directory", e);
+        }
+    }
+}
@@ -2,87 +2,77 @@ package uth.edu.vn.lms_user_service.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import uth.edu.vn.lms_user_service.cache.UserCache;
 import uth.edu.vn.lms_user_service.dto.UpdateProfileRequest;
+import uth.edu.vn.lms_user_service.dto.UserChangesResponse;
 import uth.edu.vn.lms_user_service.dto.UserResponse;
 import uth.edu.vn.lms_user_service.entity.ActivityType;
-import uth.edu.vn.lms_user_service.entity.Role;
 import uth.edu.vn.lms_user_service.entity.User;
+import uth.edu.vn.lms_user_service.exception.ApiException;
 import uth.edu.vn.lms_user_service.exception.ResourceNotFoundException;
 import uth.edu.vn.lms_user_service.repository.UserRepository;
 
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * User Service with Cache-Aside Pattern
- * Read: Check Cache -> Miss -> Read DB -> Set Cache
- * Write: Update DB -> Invalidate Cache
+ * Read: Check Cache (in-process L1, then Redis L2) -> Miss -> Read DB -> Set Cache
+ * Write: Update DB -> Invalidate Cache (Redis key + L1 on every node via pub/sub)
  */
 @Service
 @Transactional
 public class UserService {
 
     private static final Logger log = LoggerFactory.getLogger(UserService.class);
-    private static final String USER_CACHE_KEY_PREFIX = "user:profile:";
-    private static final Duration CACHE_TTL = Duration.ofHours(1);
 
     private final UserRepository userRepository;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final UserCache userCache;
     private final PasswordEncoder passwordEncoder;
     private final ActivityService activityService;
 
-    public UserService(UserRepository userRepository, RedisTemplate<String, Object> redisTemplate, 
+    // How long a change must be committed-old before the change feed hands it out
+    @Value("${app.sync.changes.safety-lag:PT5S}")
+    private Duration changesSafetyLag;
+
+    @Value("${app.sync.changes.max-limit:1000}")
+    private int maxChangesLimit;
+
+    public UserService(UserRepository userRepository, UserCache userCache, 
                        PasswordEncoder passwordEncoder, ActivityService activityService) {
         this.userRepository = userRepository;
-        this.redisTemplate = redisTemplate;
+        this.userCache = userCache;
         this.passwordEncoder = passwordEncoder;
         this.activityService = activityService;
     }
 
     /**
      * Get user profile with Cache-Aside pattern
-     * 1. Check Redis cache
+     * 1. Check in-process L1, then Redis
      * 2. If hit, return cached data
      * 3. If miss, query PostgreSQL -> cache result -> return
+     * Runs without a transaction so cache hits and fill waits hold no connection;
+     * the repository call on a miss opens its own
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public UserResponse getProfile(Long userId) {
-        String cacheKey = USER_CACHE_KEY_PREFIX + userId;
-        
-        // Try to get from cache
-        try {
-            Object cached = redisTemplate.opsForValue().get(cacheKey);
-            if (cached instanceof UserResponse cachedResponse) {
-                log.debug("Cache HIT for user: {}", userId);
-                return cachedResponse;
-            }
-        } catch (Exception e) {
-            log.warn("Redis cache read failed for user {}: {}", userId, e.getMessage());
-            // Continue to database on cache failure
+        UserResponse profile = userCache.get(userId, id -> {
+            log.debug("Cache MISS for user: {}", id);
+            return userRepository.findById(id).map(UserResponse::fromUser).orElse(null);
+        });
+        if (profile == null) {
+            throw new ResourceNotFoundException("User not found with id: " + userId);
         }
-        
-        log.debug("Cache MISS for user: {}", userId);
-        
-        // Cache miss - fetch from database
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-        UserResponse response = UserResponse.fromUser(user);
-        
-        // Cache the result
-        try {
-            redisTemplate.opsForValue().set(cacheKey, response, CACHE_TTL);
-            log.debug("Cached user profile: {}", userId);
-        } catch (Exception e) {
-            log.warn("Redis cache write failed for user {}: {}", userId, e.getMessage());
-            // Continue without caching on failure
-        }
-        
-        return response;
+        return profile;
     }
 
     /**
@@ -191,16 +181,8 @@ public class UserService {
      * Invalidate user cache on any write operation
      */
     private void invalidateUserCache(Long userId) {
-        String cacheKey = USER_CACHE_KEY_PREFIX + userId;
-        try {
-            Boolean deleted = redisTemplate.delete(cacheKey);
-            if (Boolean.TRUE.equals(deleted)) {
-                log.debug("Invalidated cache for user: {}", userId);
-            }
-        } catch (Exception e) {
-            log.warn("Failed to invalidate cache for user {}: {}", userId, e.getMessage());
-            // Continue on cache failure - data consistency is maintained
-        }
+        userCache.invalidate(userId);
+        log.debug("Invalidated cache for user: {}", userId);
     }
 
     private void updateUserFields(User user, UpdateProfileRequest request) {
@@ -227,42 +209,51 @@ public class UserService {
     // ==================== Internal API Methods (for inter-service communication) ====================
 
     /**
-     * Get user by ID (internal use - no cache)
+     * Get user by ID (internal use)
+     * Goes through the profile cache so lookups of unknown IDs from other services stay off the database
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public UserResponse getUserById(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-        return UserResponse.fromUser(user);
+        return getProfile(userId);
     }
 
     /**
      * Get multiple users by IDs (batch lookup)
+     * One cache MGET for all IDs, one query for the misses; keeps request order and duplicates
+     * No transaction, as for getProfile: only the query for the misses uses a connection
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<UserResponse> getUsersByIds(List<Long> userIds) {
-        return userRepository.findByIdIn(userIds).stream()
-                .map(UserResponse::fromUser)
-                .collect(Collectors.toList());
+        return userCache.getAll(userIds, missing -> userRepository.findByIdIn(missing).stream()
+                .collect(Collectors.toMap(User::getId, UserResponse::fromUser)));
     }
 
     /**
-     * Get all active teachers
+     * Users changed after the given change token, oldest change first
+     * Rows changed within the safety lag are held back, and the page stops at the first of them:
+     * change numbers are taken before commit, so a younger row may still be joined by an older
+     * number that commits later. Skipping past it would lose that change for the client.
      */
     @Transactional(readOnly = true)
-    public List<UserResponse> getAllTeachers() {
-        return userRepository.findActiveUsersByRole(Role.TEACHER).stream()
-                .map(UserResponse::fromUser)
-                .collect(Collectors.toList());
-    }
+    public UserChangesResponse getChangesSince(long since, int limit) {
+        if (limit < 1 || limit > maxChangesLimit) {
+            throw ApiException.badRequest("limit must be between 1 and " + maxChangesLimit);
+        }
+        List<User> changed = userRepository.findChangedSince(since, PageRequest.of(0, limit + 1));
+        LocalDateTime visibleBefore = LocalDateTime.now().minus(changesSafetyLag);
 
-    /**
-     * Get all active students
-     */
-    @Transactional(readOnly = true)
-    public List<UserResponse> getAllStudents() {
-        return userRepository.findActiveUsersByRole(Role.STUDENT).stream()
-                .map(UserResponse::fromUser)
-                .collect(Collectors.toList());
+        List<UserResponse> users = new ArrayList<>();
+        long nextToken = since;
+        boolean heldBack = false;
+        for (User user : changed.subList(0, Math.min(limit, changed.size()))) {
+            if (user.getUpdatedAt() != null && !user.getUpdatedAt().isBefore(visibleBefore)) {
+                heldBack = true;
+                break;
+            }
+            users.add(UserResponse.fromUser(user));
+            nextToken = user.getChangeSeq();
+        }
+        boolean hasMore = !heldBack && changed.size() > limit;
+        return new UserChangesResponse(users, String.valueOf(nextToken), hasMore);
     }
 }
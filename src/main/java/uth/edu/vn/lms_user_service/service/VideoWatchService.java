@@ -0,0 +1,291 @@
+package uth.edu.vn.lms_user_service.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uth.edu.vn.lms_user_service.document.ActivityLog;
+import uth.edu.vn.lms_user_service.document.VideoWatchProgress;
+import uth.edu.vn.lms_user_service.dto.VideoWatchResponse;
+import uth.edu.vn.lms_user_service.repository.VideoWatchProgressRepository;
+import uth.edu.vn.lms_user_service.util.IntervalSet;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Video watch time from player events
+ *
+ * Write Path: ActivityConsumer -> VIDEO_PLAY opens a play, VIDEO_PAUSE / VIDEO_SEEK /
+ * VIDEO_COMPLETE close it into a watched interval -> intervals merged per (user, video) in
+ * memory -> periodic optimistic merge into video_watch_progress
+ * Read Path: precomputed coverage and watch time per student / per video
+ *
+ * Open plays are per node: a play and the event closing it must be handled by the same node,
+ * which the per-user activity partitions guarantee (see RabbitMQConfig). Plays still open when a
+ * partition moves to another node are lost, like plays of a tab closed mid-video.
+ *
+ * A play closed without an end position (the next VIDEO_PLAY arrived first) is estimated from
+ * wall-clock time only within max-unclosed-gap; a longer gap means the player sat idle or the
+ * tab was abandoned, so that play is dropped instead of crediting the whole gap.
+ *
+ * Player metadata: videoId, currentTime (seconds, position at the event), duration
+ * (seconds, optional) and for VIDEO_SEEK fromTime (position before the seek).
+ */
+@Service
+public class VideoWatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(VideoWatchService.class);
+    private static final int MAX_MERGE_ATTEMPTS = 5;
+
+    private final VideoWatchProgressRepository progressRepository;
+    private final Map<PlayKey, OpenPlay> openPlays;
+    private final ConcurrentHashMap<String, PendingWatch> pending = new ConcurrentHashMap<>();
+
+    // Intervals longer than wall-clock time x this rate are clamped (covers 2x playback speed)
+    @Value("${app.activity.video.max-playback-rate:2.0}")
+    private double maxPlaybackRate;
+
+    // Longest wall-clock gap a play closed without an end position may be credited for
+    @Value("${app.activity.video.max-unclosed-gap:PT5M}")
+    private Duration maxUnclosedGap;
+
+    public VideoWatchService(VideoWatchProgressRepository progressRepository,
+                             @Value("${app.activity.video.max-open-plays:10000}") int maxOpenPlays) {
+        this.progressRepository = progressRepository;
+        // Bounded: plays never closed (tab closed mid-video) are evicted oldest first and dropped
+        this.openPlays = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PlayKey, OpenPlay> eldest) {
+                return size() > maxOpenPlays;
+            }
+        };
+    }
+
+    /**
+     * Feed an ingested activity; ignores anything that is not a video player event
+     */
+    public void record(ActivityLog activity) {
+        String type = activity.getActivityType();
+        if (type == null || !type.startsWith("VIDEO_") || activity.getUserId() == null) {
+            return;
+        }
+        String videoId = metadataString(activity, "videoId");
+        if (videoId == null) {
+            return;
+        }
+
+        Instant at = activity.getTimestamp() != null ? activity.getTimestamp() : Instant.now();
+        Double position = metadataDouble(activity, "currentTime");
+        Double duration = metadataDouble(activity, "duration");
+        PlayKey key = new PlayKey(activity.getUserId(), activity.getSessionId() != null ? activity.getSessionId() : "", videoId);
+
+        synchronized (openPlays) {
+            OpenPlay open = openPlays.remove(key);
+            switch (type) {
+                case "VIDEO_PLAY" -> {
+                    if (open != null) {
+                        // Missed pause: close the previous play at its estimated position
+                        close(key, open, null, at, duration);
+                    }
+                    if (position != null) {
+                        openPlays.put(key, new OpenPlay(position, at, activity.getCourseId()));
+                    }
+                }
+                case "VIDEO_SEEK" -> {
+                    if (open != null) {
+                        close(key, open, metadataDouble(activity, "fromTime"), at, duration);
+                        if (position != null) {
+                            openPlays.put(key, new OpenPlay(position, at, open.courseId()));
+                        }
+                    }
+                }
+                case "VIDEO_PAUSE" -> {
+                    if (open != null) {
+                        close(key, open, position, at, duration);
+                    }
+                }
+                case "VIDEO_COMPLETE" -> {
+                    if (open != null) {
+                        close(key, open, position != null ? position : duration, at, duration);
+                    }
+                }
+                default -> {
+                    if (open != null) {
+                        openPlays.put(key, open);
+                    }
+                }
+            }
+        }
+    }
+
+    private void close(PlayKey key, OpenPlay open, Double endPosition, Instant at, Double duration) {
+        double start = Math.max(0, open.position());
+        Duration wall = Duration.between(open.startedAt(), at);
+        if (endPosition == null && wall.compareTo(maxUnclosedGap) > 0) {
+            return;
+        }
+        double wallSeconds = Math.max(0, wall.toMillis() / 1000.0);
+        double end = endPosition != null ? endPosition : start + wallSeconds;
+        end = Math.min(end, start + wallSeconds * maxPlaybackRate + 1);
+        if (duration != null && duration > 0) {
+            end = Math.min(end, duration);
+        }
+        if (end <= start) {
+            return;
+        }
+
+        int[] interval = {(int) Math.floor(start), (int) Math.ceil(end)};
+        long seconds = Math.round(end - start);
+        Integer durationSeconds = duration != null && duration > 0 ? (int) Math.ceil(duration) : null;
+        pending.compute(VideoWatchProgress.idFor(key.userId(), key.videoId()), (id, watch) -> {
+            PendingWatch acc = watch != null ? watch : new PendingWatch(key.userId(), key.videoId());
+            acc.add(interval, seconds, durationSeconds, open.courseId(), at);
+            return acc;
+        });
+    }
+
+    /**
+     * Merge pending watch intervals into MongoDB
+     */
+    @Scheduled(fixedDelayString = "${app.activity.video.flush-interval-ms:10000}")
+    public void flush() {
+        for (String id : pending.keySet()) {
+            PendingWatch watch = pending.remove(id);
+            if (watch == null) {
+                continue;
+            }
+            try {
+                merge(id, watch);
+            } catch (Exception e) {
+                log.warn("Failed to merge video watch progress {}, will retry: {}", id, e.getMessage());
+                pending.merge(id, watch, PendingWatch::merge);
+            }
+        }
+    }
+
+    private void merge(String id, PendingWatch watch) {
+        for (int attempt = 1; attempt <= MAX_MERGE_ATTEMPTS; attempt++) {
+            VideoWatchProgress progress = progressRepository.findById(id)
+                .orElseGet(() -> new VideoWatchProgress(watch.userId, watch.videoId));
+            int[] merged = IntervalSet.union(progress.getIntervals(), watch.intervals);
+            progress.setIntervals(merged);
+            progress.setWatchedSeconds(IntervalSet.coveredLength(merged));
+            progress.setTotalWatchSeconds(progress.getTotalWatchSeconds() + watch.totalSeconds);
+            if (watch.courseId != null) {
+                progress.setCourseId(watch.courseId);
+            }
+            if (watch.durationSeconds != null) {
+                progress.setVideoDurationSeconds(progress.getVideoDurationSeconds() != null
+                    ? Math.max(progress.getVideoDurationSeconds(), watch.durationSeconds)
+                    : watch.durationSeconds);
+            }
+            if (progress.getLastWatchedAt() == null || watch.lastWatchedAt.isAfter(progress.getLastWatchedAt())) {
+                progress.setLastWatchedAt(watch.lastWatchedAt);
+            }
+            try {
+                progressRepository.save(progress);
+                return;
+            } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+                // Another node updated the same (user, video) first; reload and merge again
+            }
+        }
+        throw new IllegalStateException("Too much contention merging video watch progress " + id);
+    }
+
+    /**
+     * Watch progress of every student on one video of a course
+     */
+    public List<VideoWatchResponse> getVideoWatch(Long courseId, String videoId) {
+        return progressRepository.findByCourseIdAndVideoId(courseId, videoId).stream()
+            .map(VideoWatchResponse::fromDocument)
+            .toList();
+    }
+
+    /**
+     * Watch progress of one student on every video of a course
+     */
+    public List<VideoWatchResponse> getStudentVideoWatch(Long courseId, Long studentId) {
+        return progressRepository.findByCourseIdAndUserId(courseId, studentId).stream()
+            .map(VideoWatchResponse::fromDocument)
+            .toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static String metadataString(ActivityLog activity, String key) {
+        Object value = activity.getMetadata() != null ? activity.getMetadata().get(key) : null;
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static Double metadataDouble(ActivityLog activity, String key) {
+        Object value = activity.getMetadata() != null ? activity.getMetadata().get(key) : null;
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof String str && !str.isBlank()) {
+            try {
+                return Double.parseDouble(str.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private record PlayKey(Long userId, String sessionId, String videoId) {}
+
+    private record OpenPlay(double position, Instant startedAt, Long courseId) {}
+
+    /**
+     * Intervals accumulated between flushes; only touched inside ConcurrentHashMap.compute/merge
+     */
+    private static final class PendingWatch {
+        private final Long userId;
+        private final String videoId;
+        private int[] intervals = new int[0];
+        private long totalSeconds;
+        private Integer durationSeconds;
+        private Long courseId;
+        private Instant lastWatchedAt;
+
+        private PendingWatch(Long userId, String videoId) {
+            this.userId = userId;
+            this.videoId = videoId;
+        }
+
+        private void add(int[] interval, long seconds, Integer duration, Long course, Instant at) {
+            intervals = IntervalSet.union(intervals, interval);
+            totalSeconds += seconds;
+            if (duration != null) {
+                durationSeconds = durationSeconds != null ? Math.max(durationSeconds, duration) : duration;
+            }
+            if (course != null) {
+                courseId = course;
+            }
+            if (lastWatchedAt == null || at.isAfter(lastWatchedAt)) {
+                lastWatchedAt = at;
+            }
+        }
+
+        private PendingWatch merge(PendingWatch other) {
+            add(other.intervals, other.totalSeconds, other.durationSeconds, other.courseId, other.lastWatchedAt);
+            return this;
+        }
+    }
+}
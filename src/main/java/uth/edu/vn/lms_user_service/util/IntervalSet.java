@@ -0,0 +1,70 @@
+package uth.edu.vn.lms_user_service.util;
+
+import java.util.Arrays;
+
+/**
+ * Sorted, non-overlapping integer intervals stored flat as [start0, end0, start1, end1, ...]
+ * (end exclusive). Compact enough to persist per (user, video) and merge in place.
+ */
+public final class IntervalSet {
+
+    private IntervalSet() {}
+
+    /**
+     * Union of two interval sets
+     */
+    public static int[] union(int[] a, int[] b) {
+        if (a == null || a.length == 0) {
+            return b != null ? b : new int[0];
+        }
+        if (b == null || b.length == 0) {
+            return a;
+        }
+        int[] all = new int[a.length + b.length];
+        System.arraycopy(a, 0, all, 0, a.length);
+        System.arraycopy(b, 0, all, a.length, b.length);
+        return normalize(all);
+    }
+
+    /**
+     * Sort and merge overlapping or touching intervals; empty intervals are dropped
+     */
+    public static int[] normalize(int[] intervals) {
+        int count = intervals.length / 2;
+        long[] packed = new long[count];
+        int valid = 0;
+        for (int i = 0; i < count; i++) {
+            int start = intervals[2 * i];
+            int end = intervals[2 * i + 1];
+            if (end > start) {
+                packed[valid++] = ((long) start << 32) | (end & 0xFFFFFFFFL);
+            }
+        }
+        Arrays.sort(packed, 0, valid);
+
+        int[] merged = new int[valid * 2];
+        int size = 0;
+        for (int i = 0; i < valid; i++) {
+            int start = (int) (packed[i] >> 32);
+            int end = (int) packed[i];
+            if (size > 0 && start <= merged[size - 1]) {
+                merged[size - 1] = Math.max(merged[size - 1], end);
+            } else {
+                merged[size++] = start;
+                merged[size++] = end;
+            }
+        }
+        return Arrays.copyOf(merged, size);
+    }
+
+    /**
+     * Total length covered by a normalized interval set
+     */
+    public static long coveredLength(int[] intervals) {
+        long total = 0;
+        for (int i = 0; i + 1 < intervals.length; i += 2) {
+            total += intervals[i + 1] - intervals[i];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,104 @@
+package uth.edu.vn.lms_user_service.util;
+
+import java.util.Map;
+
+/**
+ * Fixed-size log-linear histogram for latencies in milliseconds.
+ *
+ * Values below 16 ms get one bucket each; above that every power of two is split into
+ * 16 linear sub-buckets, giving at most ~6% relative error up to ~17 minutes
+ * (larger values are clamped into the last bucket). Histograms merge by adding counts,
+ * so they can be combined across nodes and across hours.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 20;
+    public static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+
+    /**
+     * Record one latency value
+     */
+    public void record(long valueMs) {
+        counts[bucketIndex(valueMs)]++;
+        totalCount++;
+    }
+
+    /**
+     * Add sparse bucket counts, e.g. loaded from a persisted rollup ("bucketIndex" -> count)
+     */
+    public void addCounts(Map<String, Long> sparseCounts) {
+        if (sparseCounts == null) {
+            return;
+        }
+        sparseCounts.forEach((index, count) -> {
+            int i = Integer.parseInt(index);
+            if (i >= 0 && i < BUCKET_COUNT && count != null) {
+                counts[i] += count;
+                totalCount += count;
+            }
+        });
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    /**
+     * Value at the given percentile (0-100), reported as the midpoint of its bucket
+     */
+    public long percentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return bucketMidpoint(i);
+            }
+        }
+        return bucketMidpoint(BUCKET_COUNT - 1);
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long countAt(int index) {
+        return counts[index];
+    }
+
+    public static int bucketIndex(long valueMs) {
+        long value = Math.max(0, valueMs);
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) ((value >> shift) & (SUB_BUCKETS - 1));
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketMidpoint(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + subBucket) << shift;
+        long width = 1L << shift;
+        return lower + width / 2;
+    }
+}
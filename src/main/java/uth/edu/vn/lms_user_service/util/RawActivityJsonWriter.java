@@ -0,0 +1,100 @@
+package uth.edu.vn.lms_user_service.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonType;
+import org.bson.RawBsonDocument;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.bson.types.ObjectId;
+import uth.edu.vn.lms_user_service.dto.ActivityCursor;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes activity_logs documents straight from BSON bytes to a Jackson generator,
+ * producing the same JSON shape as {@code ActivityResponse} without decoding into
+ * ActivityLog / response objects first.
+ *
+ * Fields are copied in document order: _id becomes "id", timestamp is converted to
+ * Vietnam local time and metadata is emitted as a JSON string. Null values are omitted.
+ * Remembers the (timestamp, _id) of the last written row for the next cursor.
+ */
+public class RawActivityJsonWriter {
+
+    private static final JsonWriterSettings METADATA_JSON = JsonWriterSettings.builder()
+        .outputMode(JsonMode.RELAXED)
+        .build();
+
+    private final JsonGenerator generator;
+    private final ZoneId zone;
+
+    private long lastTimestampMillis;
+    private ObjectId lastId;
+
+    public RawActivityJsonWriter(JsonGenerator generator, ZoneId zone) {
+        this.generator = generator;
+        this.zone = zone;
+    }
+
+    public void write(RawBsonDocument document) throws IOException {
+        boolean hasMetadata = false;
+        generator.writeStartObject();
+        try (BsonBinaryReader reader = new BsonBinaryReader(document.getByteBuffer().asNIO())) {
+            reader.readStartDocument();
+            BsonType type;
+            while ((type = reader.readBsonType()) != BsonType.END_OF_DOCUMENT) {
+                String name = reader.readName();
+                switch (type) {
+                    case OBJECT_ID -> {
+                        ObjectId id = reader.readObjectId();
+                        if ("_id".equals(name)) {
+                            lastId = id;
+                            generator.writeStringField("id", id.toHexString());
+                        } else {
+                            generator.writeStringField(name, id.toHexString());
+                        }
+                    }
+                    case STRING -> generator.writeStringField("_id".equals(name) ? "id" : name, reader.readString());
+                    case INT32 -> generator.writeNumberField(name, reader.readInt32());
+                    case INT64 -> generator.writeNumberField(name, reader.readInt64());
+                    case DOUBLE -> generator.writeNumberField(name, reader.readDouble());
+                    case BOOLEAN -> generator.writeBooleanField(name, reader.readBoolean());
+                    case DATE_TIME -> {
+                        long millis = reader.readDateTime();
+                        if ("timestamp".equals(name)) {
+                            lastTimestampMillis = millis;
+                        }
+                        generator.writeStringField(name, DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(
+                            LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), zone)));
+                    }
+                    case DOCUMENT -> {
+                        // Nested values other than metadata are not part of the response
+                        hasMetadata |= "metadata".equals(name);
+                        reader.skipValue();
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+        }
+        if (hasMetadata) {
+            RawBsonDocument metadata = (RawBsonDocument) document.getDocument("metadata");
+            if (!metadata.isEmpty()) {
+                generator.writeStringField("metadata", metadata.toJson(METADATA_JSON));
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Cursor positioned after the last written row, or null if nothing was written
+     */
+    public ActivityCursor lastCursor() {
+        return lastId != null ? new ActivityCursor(Instant.ofEpochMilli(lastTimestampMillis), lastId.toHexString()) : null;
+    }
+}
@@ -0,0 +1,60 @@
+package uth.edu.vn.lms_user_service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    private static final int KEYS = 10_000;
+    private static final double FPP = 0.01;
+
+    @Test
+    void insertedKeysAreAlwaysFound() {
+        BloomFilter filter = BloomFilter.create(KEYS, FPP);
+        for (long key = 0; key < KEYS; key++) {
+            filter.put(key * 7919);
+        }
+        filter.put(Long.MIN_VALUE);
+        filter.put(Long.MAX_VALUE);
+        filter.put(-1);
+
+        for (long key = 0; key < KEYS; key++) {
+            assertTrue(filter.mightContain(key * 7919));
+        }
+        assertTrue(filter.mightContain(Long.MIN_VALUE));
+        assertTrue(filter.mightContain(Long.MAX_VALUE));
+        assertTrue(filter.mightContain(-1));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTarget() {
+        BloomFilter filter = BloomFilter.create(KEYS, FPP);
+        for (long key = 0; key < KEYS; key++) {
+            filter.put(key);
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (long key = KEYS; key < KEYS + probes; key++) {
+            if (filter.mightContain(key)) {
+                falsePositives++;
+            }
+        }
+
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < FPP * 2, "false positive rate " + rate);
+        assertTrue(filter.expectedFpp() < FPP * 2, "expected fpp " + filter.expectedFpp());
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = BloomFilter.create(0, FPP);
+
+        assertTrue(filter.bitSize() >= 64);
+        for (long key = -100; key < 100; key++) {
+            assertFalse(filter.mightContain(key));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package uth.edu.vn.lms_user_service.cache;
+
+import org.junit.jupiter.api.Test;
+import uth.edu.vn.lms_user_service.config.JacksonConfig;
+import uth.edu.vn.lms_user_service.dto.UserResponse;
+import uth.edu.vn.lms_user_service.entity.Role;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CachedProfileCodecTest {
+
+    private final CodecRedisSerializer<CachedProfile> serializer = new CodecRedisSerializer<>(
+        new CachedProfileCodec(), CachedProfile.class, new JacksonConfig().objectMapper());
+
+    @Test
+    void roundTripsAProfileEnvelope() {
+        UserResponse user = new UserResponse(7L, "student7", "s7@uth.edu.vn", "Student Seven", null, null,
+            Role.STUDENT, null, true, true, false, null, null, null, LocalDateTime.of(2025, 9, 1, 7, 0), null);
+        CachedProfile cached = new CachedProfile(user, 12, 1_767_225_600_123L, 5);
+
+        assertEquals(cached, serializer.deserialize(serializer.serialize(cached)));
+    }
+
+    @Test
+    void roundTripsNegativeEntriesWithEdgeVersions() {
+        for (long version : new long[]{0, -1, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            CachedProfile missing = new CachedProfile(null, 0, Long.MAX_VALUE, version);
+
+            assertEquals(missing, serializer.deserialize(serializer.serialize(missing)));
+        }
+    }
+
+    @Test
+    void entryFromAnotherSchemaVersionIsAMiss() {
+        byte[] bytes = serializer.serialize(new CachedProfile(null, 0, 0, 0));
+        bytes[1]++;
+
+        assertNull(serializer.deserialize(bytes));
+    }
+}
@@ -0,0 +1,292 @@
+package uth.edu.vn.lms_user_service.cache;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import uth.edu.vn.lms_user_service.config.JacksonConfig;
+import uth.edu.vn.lms_user_service.dto.UserResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Two UserCache nodes sharing one (in-memory) Redis and pub/sub channel
+ */
+class UserCacheTest {
+
+    private static final Duration L1_TTL = Duration.ofSeconds(30);
+    private static final UserCache.Settings SETTINGS = new UserCache.Settings(
+        100, L1_TTL, Duration.ofHours(1), 0.1, Duration.ofMinutes(5), 1.0, Duration.ofSeconds(5),
+        Duration.ofSeconds(2), Duration.ofSeconds(2), Duration.ofMinutes(1));
+    private static final Long USER_ID = 42L;
+
+    // Lock values as strings, profile entries as the bytes the real serializer writes
+    private final Map<String, Object> redis = new ConcurrentHashMap<>();
+    private final AtomicInteger databaseLoads = new AtomicInteger();
+    private final List<UserCache> subscribers = new ArrayList<>();
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicReference<String> database = new AtomicReference<>("Old Name");
+    private boolean deliverMessages = true;
+
+    private UserCache nodeA;
+    private UserCache nodeB;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.get(anyString())).thenAnswer(inv -> redis.get(inv.<String>getArgument(0)));
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+            .thenAnswer(inv -> redis.putIfAbsent(inv.getArgument(0), inv.getArgument(1)) == null);
+        when(redisTemplate.delete(anyString())).thenAnswer(inv -> redis.remove(inv.<String>getArgument(0)) != null);
+        when(redisTemplate.delete(anyCollection())).thenAnswer(inv -> inv.<Collection<String>>getArgument(0).stream()
+            .filter(key -> redis.remove(key) != null).count());
+        when(values.increment(anyString())).thenAnswer(inv ->
+            Long.valueOf((String) redis.merge(inv.getArgument(0), "1", (old, one) -> String.valueOf(Long.parseLong((String) old) + 1))));
+        when(redisTemplate.expire(anyString(), any(Duration.class))).thenReturn(true);
+        when(redisTemplate.convertAndSend(anyString(), anyString())).thenAnswer(inv -> {
+            if (deliverMessages) {
+                byte[] channel = inv.<String>getArgument(0).getBytes(StandardCharsets.UTF_8);
+                byte[] body = inv.<String>getArgument(1).getBytes(StandardCharsets.UTF_8);
+                subscribers.forEach(node -> node.onMessage(new DefaultMessage(channel, body), null));
+            }
+            return (long) subscribers.size();
+        });
+
+        CodecRedisSerializer<CachedProfile> serializer = new CodecRedisSerializer<>(
+            new CachedProfileCodec(), CachedProfile.class, new JacksonConfig().objectMapper());
+        RedisTemplate<String, CachedProfile> profileTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, CachedProfile> profiles = mock(ValueOperations.class);
+        when(profileTemplate.opsForValue()).thenReturn(profiles);
+        doReturn(serializer).when(profileTemplate).getValueSerializer();
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisStringCommands strings = mock(RedisStringCommands.class);
+        when(connection.stringCommands()).thenReturn(strings);
+        when(strings.mGet(any(byte[][].class))).thenAnswer(inv -> Arrays.stream(inv.getArguments())
+            .map(key -> redis.get(new String((byte[]) key, StandardCharsets.UTF_8)))
+            .map(value -> value instanceof String text ? text.getBytes(StandardCharsets.UTF_8) : (byte[]) value)
+            .toList());
+        when(profileTemplate.execute(any(RedisCallback.class)))
+            .thenAnswer(inv -> inv.<RedisCallback<?>>getArgument(0).doInRedis(connection));
+        doAnswer(inv -> redis.put(inv.getArgument(0), serializer.serialize(inv.getArgument(1))))
+            .when(profiles).set(anyString(), any(CachedProfile.class), any(Duration.class));
+
+        Ticker ticker = nanos::get;
+        LongSupplier clock = () -> TimeUnit.NANOSECONDS.toMillis(nanos.get());
+        UserIdFilter idFilter = mock(UserIdFilter.class);
+        when(idFilter.mightExist(anyLong())).thenReturn(true);
+        nodeA = new UserCache(redisTemplate, profileTemplate, idFilter, new SimpleMeterRegistry(), SETTINGS, ticker, clock);
+        nodeB = new UserCache(redisTemplate, profileTemplate, idFilter, new SimpleMeterRegistry(), SETTINGS, ticker, clock);
+        subscribers.add(nodeA);
+        subscribers.add(nodeB);
+    }
+
+    @Test
+    void updateOnNodeAIsVisibleOnNodeBImmediately() {
+        assertEquals("Old Name", nodeB.get(USER_ID, this::load).fullName());
+
+        updateProfileOn(nodeA, "New Name");
+
+        assertEquals("New Name", nodeB.get(USER_ID, this::load).fullName());
+        assertEquals("New Name", nodeA.get(USER_ID, this::load).fullName());
+    }
+
+    @Test
+    void lostInvalidationIsStaleAtMostForL1Ttl() {
+        assertEquals("Old Name", nodeB.get(USER_ID, this::load).fullName());
+
+        deliverMessages = false;
+        updateProfileOn(nodeA, "New Name");
+
+        advance(L1_TTL.minusSeconds(1));
+        assertEquals("Old Name", nodeB.get(USER_ID, this::load).fullName());
+
+        advance(Duration.ofSeconds(1));
+        assertEquals("New Name", nodeB.get(USER_ID, this::load).fullName());
+    }
+
+    @Test
+    void fillFromRowReadBeforeAWriteIsRejected() throws Exception {
+        CountDownLatch rowRead = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        try (ExecutorService pool = Executors.newSingleThreadExecutor()) {
+            Future<UserResponse> slowReader = pool.submit(() -> nodeB.get(USER_ID, id -> {
+                UserResponse old = load(id);
+                rowRead.countDown();
+                await(written);
+                return old;
+            }));
+            rowRead.await();
+            updateProfileOn(nodeA, "New Name");
+            written.countDown();
+            assertEquals("Old Name", slowReader.get().fullName());
+        }
+
+        assertEquals("New Name", nodeA.get(USER_ID, this::load).fullName());
+        // Neither L2 nor the reader's own L1 keeps the old row
+        assertEquals("New Name", nodeB.get(USER_ID, this::load).fullName());
+    }
+
+    @Test
+    void stampedeOnOneKeyLoadsFromDatabaseOnce() throws Exception {
+        int callersPerNode = 32;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<UserResponse>> results = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(callersPerNode * 2)) {
+            for (int i = 0; i < callersPerNode * 2; i++) {
+                UserCache node = i % 2 == 0 ? nodeA : nodeB;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return node.get(USER_ID, this::slowLoad);
+                }));
+            }
+            start.countDown();
+            for (Future<UserResponse> result : results) {
+                assertEquals("Old Name", result.get().fullName());
+            }
+        }
+
+        assertEquals(1, databaseLoads.get());
+        assertEquals(Set.of(UserCache.KEY_PREFIX + USER_ID), redis.keySet());
+    }
+
+    @Test
+    void failedLoadIsSharedWithWaitersAndNotCached() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return nodeA.get(USER_ID, id -> {
+                        databaseLoads.incrementAndGet();
+                        sleep(100);
+                        throw new IllegalStateException("User not found");
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                assertEquals(IllegalStateException.class,
+                    assertThrows(Exception.class, result::get).getCause().getClass());
+            }
+        }
+
+        assertEquals(1, databaseLoads.get());
+        assertEquals("Old Name", nodeA.get(USER_ID, this::load).fullName());
+    }
+
+    @Test
+    void unknownUserIsLoadedOnceUntilRegistered() {
+        Function<Long, UserResponse> missing = id -> {
+            databaseLoads.incrementAndGet();
+            return null;
+        };
+
+        assertNull(nodeA.get(USER_ID, missing));
+        assertNull(nodeB.get(USER_ID, missing));
+        assertEquals(1, databaseLoads.get());
+
+        nodeA.registered(USER_ID);
+        assertEquals("Old Name", nodeB.get(USER_ID, this::load).fullName());
+    }
+
+    @Test
+    void negativeEntryWrittenAfterRegistrationIsRejected() {
+        // The row is read before the user commits; the negative entry lands after registered()
+        assertNull(nodeA.get(USER_ID, id -> {
+            databaseLoads.incrementAndGet();
+            nodeB.registered(id);
+            return null;
+        }));
+
+        assertEquals("Old Name", nodeB.get(USER_ID, this::load).fullName());
+        assertEquals(2, databaseLoads.get());
+    }
+
+    @Test
+    void entryFromAnotherSchemaVersionIsReloaded() {
+        assertEquals("Old Name", nodeA.get(USER_ID, this::load).fullName());
+        byte[] entry = (byte[]) redis.get(UserCache.KEY_PREFIX + USER_ID);
+        entry[1]++;
+        database.set("New Name");
+
+        assertEquals("New Name", nodeB.get(USER_ID, this::load).fullName());
+        assertEquals(2, databaseLoads.get());
+    }
+
+    private UserResponse slowLoad(Long userId) {
+        sleep(200);
+        return load(userId);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void updateProfileOn(UserCache node, String fullName) {
+        database.set(fullName);
+        node.invalidate(USER_ID);
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    private UserResponse load(Long userId) {
+        databaseLoads.incrementAndGet();
+        return new UserResponse(userId, "user" + userId, "user" + userId + "@uth.edu.vn", database.get(),
+            null, null, null, null, true, false, true, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,77 @@
+package uth.edu.vn.lms_user_service.cache;
+
+import org.junit.jupiter.api.Test;
+import uth.edu.vn.lms_user_service.dto.UserResponse;
+import uth.edu.vn.lms_user_service.entity.AuthProvider;
+import uth.edu.vn.lms_user_service.entity.Role;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserResponseCodecTest {
+
+    private final UserResponseCodec codec = new UserResponseCodec();
+
+    @Test
+    void roundTripsEveryField() throws IOException {
+        UserResponse user = new UserResponse(42L, "nguyenvana", "a@uth.edu.vn", "Nguyễn Văn A", "0901234567",
+            "https://cdn.example/a.png", Role.TEACHER, AuthProvider.values()[0], true, false, true,
+            "Giảng viên 🎓", LocalDate.of(1990, 2, 28), "Hồ Chí Minh",
+            LocalDateTime.of(2024, 1, 1, 8, 30, 15, 123_456_789), LocalDateTime.of(1969, 12, 31, 23, 59, 59, 1));
+
+        assertEquals(user, roundTrip(user));
+    }
+
+    @Test
+    void roundTripsNullsAndFalseFlags() throws IOException {
+        UserResponse user = new UserResponse(null, null, null, null, null, null, null, null,
+            false, false, false, null, null, null, null, null);
+
+        assertEquals(user, roundTrip(user));
+    }
+
+    @Test
+    void varintsRoundTripAtTheEdges() throws IOException {
+        long[] values = {0, 1, -1, 63, -64, 64, -65, 8191, 8192, Integer.MAX_VALUE, Integer.MIN_VALUE,
+            Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            byte[] bytes = varint(value);
+            assertEquals(value, UserResponseCodec.readVarLong(new DataInputStream(new ByteArrayInputStream(bytes))));
+        }
+        // Zig-zag keeps small magnitudes short in both directions
+        assertEquals(1, varint(0).length);
+        assertEquals(1, varint(-64).length);
+        assertEquals(2, varint(64).length);
+        assertEquals(10, varint(Long.MIN_VALUE).length);
+    }
+
+    @Test
+    void overlongVarintIsRejected() {
+        byte[] bytes = new byte[11];
+        Arrays.fill(bytes, (byte) 0x80);
+
+        assertThrows(IOException.class,
+            () -> UserResponseCodec.readVarLong(new DataInputStream(new ByteArrayInputStream(bytes))));
+    }
+
+    private UserResponse roundTrip(UserResponse user) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(user, new DataOutputStream(bytes));
+        return codec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private static byte[] varint(long value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        UserResponseCodec.writeVarLong(new DataOutputStream(bytes), value);
+        return bytes.toByteArray();
+    }
+}
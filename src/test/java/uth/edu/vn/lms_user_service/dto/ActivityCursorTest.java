@@ -0,0 +1,45 @@
+package uth.edu.vn.lms_user_service.dto;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import uth.edu.vn.lms_user_service.exception.ApiException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActivityCursorTest {
+
+    @Test
+    void roundTripsThroughAnUrlSafeToken() {
+        ActivityCursor cursor = new ActivityCursor(Instant.parse("2026-01-01T10:15:30.123Z"), "65a1f0c2e4b0a1b2c3d4e5f6");
+
+        String token = cursor.encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+        assertEquals(cursor, ActivityCursor.decode(token));
+    }
+
+    @Test
+    void blankTokenStartsFromTheBeginning() {
+        assertNull(ActivityCursor.decode(null));
+        assertNull(ActivityCursor.decode(" "));
+    }
+
+    @Test
+    void malformedTokensAreBadRequests() {
+        for (String token : new String[]{"not base64!", encode("1700000000000"), encode("1700000000000:"), encode("abc:65a1")}) {
+            ApiException e = assertThrows(ApiException.class, () -> ActivityCursor.decode(token));
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+        }
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,77 @@
+package uth.edu.vn.lms_user_service.service;
+
+import org.junit.jupiter.api.Test;
+import uth.edu.vn.lms_user_service.document.ActivityLog;
+import uth.edu.vn.lms_user_service.dto.ActivityStatsResponse;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ActivityStatsPartialTest {
+
+    private static final List<ActivityLog> FIRST_HOUR = List.of(
+        activity(1L, "s1", "PAGE_VIEW", "/courses", "2026-01-01T10:00:00Z"),
+        activity(2L, "s2", "PAGE_VIEW", "/courses", "2026-01-01T10:05:00Z"),
+        activity(1L, "s1", "LESSON_VIEW", null, "2026-01-01T10:10:00Z")
+    );
+    private static final List<ActivityLog> SECOND_HOUR = List.of(
+        activity(1L, "s1", "PAGE_VIEW", "/lessons/7", "2026-01-01T11:20:00Z"),
+        activity(3L, "s3", "QUIZ_SUBMIT", null, "2026-01-01T11:30:00Z"),
+        activity(3L, null, "PAGE_VIEW", "/courses", "2026-01-01T11:40:00Z")
+    );
+
+    @Test
+    void mergedPartialsEqualOnePassOverAllActivities() {
+        ActivityStatsPartial whole = partialOf(FIRST_HOUR);
+        SECOND_HOUR.forEach(activity -> whole.add(activity, ZoneOffset.UTC));
+
+        ActivityStatsResponse merged = partialOf(FIRST_HOUR).merge(partialOf(SECOND_HOUR)).toResponse();
+
+        assertEquals(whole.toResponse(), merged);
+        assertEquals(6L, merged.totalActivities());
+        assertEquals(3L, merged.uniqueUsers());
+        assertEquals(3L, merged.uniqueSessions());
+        assertEquals(Map.of("PAGE_VIEW", 4L, "LESSON_VIEW", 1L, "QUIZ_SUBMIT", 1L), merged.activityByType());
+        assertEquals(Map.of("/courses", 3L, "/lessons/7", 1L), merged.topPages());
+        assertEquals(Map.of(10, 3L, 11, 3L), merged.hourlyDistribution());
+    }
+
+    @Test
+    void sessionSpanningBucketsKeepsItsFullDuration() {
+        ActivityStatsResponse merged = partialOf(SECOND_HOUR).merge(partialOf(FIRST_HOUR)).toResponse();
+
+        // s1 runs 10:00-11:20; s2 and s3 have a single event and are not averaged
+        assertEquals(80.0, merged.avgSessionDurationMinutes());
+    }
+
+    @Test
+    void mergeDoesNotShareStateWithTheOtherPartial() {
+        ActivityStatsPartial first = partialOf(FIRST_HOUR);
+        ActivityStatsPartial second = partialOf(SECOND_HOUR);
+        first.merge(second);
+
+        second.add(activity(1L, "s1", "PAGE_VIEW", null, "2026-01-01T12:00:00Z"), ZoneOffset.UTC);
+
+        assertEquals(80.0, first.toResponse().avgSessionDurationMinutes());
+    }
+
+    private static ActivityStatsPartial partialOf(List<ActivityLog> activities) {
+        ActivityStatsPartial partial = new ActivityStatsPartial();
+        activities.forEach(activity -> partial.add(activity, ZoneOffset.UTC));
+        return partial;
+    }
+
+    private static ActivityLog activity(Long userId, String sessionId, String type, String pageUrl, String timestamp) {
+        return ActivityLog.builder()
+            .userId(userId)
+            .sessionId(sessionId)
+            .activityType(type)
+            .pageUrl(pageUrl)
+            .timestamp(Instant.parse(timestamp))
+            .build();
+    }
+}
@@ -0,0 +1,71 @@
+package uth.edu.vn.lms_user_service.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import uth.edu.vn.lms_user_service.config.JacksonConfig;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * FunnelTransitions written to and read back from an (in-memory) Redis
+ */
+class FunnelCacheTest {
+
+    private static final List<String> STEPS = List.of("COURSE_VIEW", "LESSON_VIEW", "QUIZ_SUBMIT");
+    private static final TimeBucket DAY = TimeBucket.split(
+        Instant.parse("2026-01-01T00:00:00Z"), Instant.parse("2026-01-02T00:00:00Z"), ZoneOffset.UTC).get(0);
+
+    private final Map<String, String> redis = new ConcurrentHashMap<>();
+    private FunnelCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        doAnswer(inv -> redis.put(inv.getArgument(0), inv.getArgument(1))).when(values).set(anyString(), anyString());
+        when(values.multiGet(anyList())).thenAnswer(inv -> inv.<List<String>>getArgument(0).stream().map(redis::get).toList());
+
+        cache = new FunnelCache(redisTemplate, new JacksonConfig().objectMapper());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+    }
+
+    @Test
+    void roundTripsTransitionsIncludingAnonymousEvents() {
+        FunnelTransitions.Builder builder = new FunnelTransitions.Builder(STEPS);
+        builder.accept(null, "COURSE_VIEW");
+        builder.accept(1L, "COURSE_VIEW");
+        builder.accept(1L, "LESSON_VIEW");
+        builder.accept(null, "LESSON_VIEW");
+        builder.accept(2L, "LESSON_VIEW");
+        FunnelTransitions transitions = builder.build();
+
+        cache.put(7L, STEPS, DAY, transitions);
+        FunnelTransitions cached = cache.getAll(7L, STEPS, List.of(DAY)).get(DAY);
+
+        assertEquals(3, cached.getStepCount());
+        assertEquals(transitions.getUsers().keySet(), cached.getUsers().keySet());
+        transitions.getUsers().forEach((userId, transition) -> assertArrayEquals(transition, cached.getUsers().get(userId)));
+
+        Map<Long, Integer> states = new HashMap<>();
+        cached.applyTo(states);
+        assertEquals(Map.of(1L, 2, 2L, 0), states);
+    }
+}
@@ -0,0 +1,57 @@
+package uth.edu.vn.lms_user_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FunnelTransitionsTest {
+
+    private static final List<String> STEPS = List.of("COURSE_VIEW", "LESSON_VIEW", "QUIZ_SUBMIT");
+
+    @Test
+    void recordsTheEndStateForEveryEntryState() {
+        FunnelTransitions.Builder builder = new FunnelTransitions.Builder(STEPS);
+        builder.accept(1L, "LESSON_VIEW");
+        builder.accept(1L, "COURSE_VIEW");
+        builder.accept(1L, "LESSON_VIEW");
+
+        FunnelTransitions transitions = builder.build();
+
+        // From 0: COURSE_VIEW then LESSON_VIEW reach 2; from 1 the first LESSON_VIEW already counts
+        assertArrayEquals(new byte[]{2, 2, 2, 3}, transitions.getUsers().get(1L));
+    }
+
+    @Test
+    void usersWithoutProgressAreOmitted() {
+        FunnelTransitions.Builder builder = new FunnelTransitions.Builder(STEPS);
+        builder.accept(1L, "VIDEO_PLAY");
+        builder.accept(2L, "COURSE_VIEW");
+        builder.accept(null, "COURSE_VIEW");
+
+        assertEquals(Set.of(2L), builder.build().getUsers().keySet());
+    }
+
+    @Test
+    void bucketsChainAcrossDays() {
+        FunnelTransitions.Builder firstDay = new FunnelTransitions.Builder(STEPS);
+        firstDay.accept(1L, "COURSE_VIEW");
+        firstDay.accept(2L, "COURSE_VIEW");
+        firstDay.accept(2L, "LESSON_VIEW");
+        FunnelTransitions.Builder secondDay = new FunnelTransitions.Builder(STEPS);
+        secondDay.accept(1L, "LESSON_VIEW");
+        secondDay.accept(2L, "QUIZ_SUBMIT");
+        secondDay.accept(3L, "LESSON_VIEW");
+
+        Map<Long, Integer> states = new HashMap<>();
+        firstDay.build().applyTo(states);
+        secondDay.build().applyTo(states);
+
+        assertEquals(Map.of(1L, 2, 2L, 3, 3L, 0), states);
+    }
+}
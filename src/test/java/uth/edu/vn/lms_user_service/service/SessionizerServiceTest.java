@@ -0,0 +1,129 @@
+package uth.edu.vn.lms_user_service.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import uth.edu.vn.lms_user_service.config.JacksonConfig;
+import uth.edu.vn.lms_user_service.document.ActivityLog;
+import uth.edu.vn.lms_user_service.document.UserSession;
+import uth.edu.vn.lms_user_service.repository.UserSessionRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Gap and close logic with a controlled wall clock; Redis only sees checkpoint writes
+ */
+class SessionizerServiceTest {
+
+    private static final Duration GAP = Duration.ofMinutes(30);
+    private static final Instant T0 = Instant.parse("2026-01-01T08:00:00Z");
+
+    private final AtomicLong wallClock = new AtomicLong(T0.toEpochMilli());
+    private UserSessionRepository sessionRepository;
+    private SessionizerService sessionizer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        sessionRepository = mock(UserSessionRepository.class);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenReturn(mock(ValueOperations.class));
+        when(redisTemplate.opsForZSet()).thenReturn(mock(ZSetOperations.class));
+        sessionizer = new SessionizerService(sessionRepository, redisTemplate, new JacksonConfig().objectMapper(),
+            GAP, 1000, wallClock::get);
+    }
+
+    @Test
+    void eventsWithinTheGapShareASession() {
+        String first = assign(1L, T0);
+        String second = assign(1L, T0.plus(GAP));
+        String otherUser = assign(2L, T0.plus(GAP));
+
+        assertEquals(first, second);
+        assertNotEquals(first, otherUser);
+    }
+
+    @Test
+    void eventAfterTheGapStartsANewSessionAndClosesThePrevious() {
+        String first = assign(1L, T0);
+        assign(1L, T0.plusSeconds(60));
+        wallClock.set(T0.plus(GAP).plusSeconds(61).toEpochMilli());
+        String second = assign(1L, T0.plus(GAP).plusSeconds(61));
+
+        assertNotEquals(first, second);
+        sessionizer.flush();
+
+        List<UserSession> emitted = emitted();
+        assertEquals(1, emitted.size());
+        assertEquals(first, emitted.get(0).getId());
+        assertEquals(2, emitted.get(0).getEventCount());
+        assertEquals(Duration.ofMinutes(1).toMillis(), emitted.get(0).getDurationMs());
+    }
+
+    @Test
+    void flushClosesSessionsIdlePastTheGap() {
+        String id = assign(1L, T0);
+
+        wallClock.set(T0.plus(GAP).toEpochMilli());
+        sessionizer.flush();
+        verify(sessionRepository, never()).saveAll(anyIterable());
+
+        wallClock.set(T0.plus(GAP).plusSeconds(1).toEpochMilli());
+        sessionizer.flush();
+        assertEquals(id, emitted().get(0).getId());
+    }
+
+    @Test
+    void drainingABacklogDoesNotCloseSessionsOnWallClock() {
+        // Events from hours ago arrive now; the event-time clock is at their timestamps
+        wallClock.set(T0.plus(Duration.ofHours(5)).toEpochMilli());
+        String first = assign(1L, T0);
+        sessionizer.flush();
+        String second = assign(1L, T0.plus(Duration.ofMinutes(20)));
+        sessionizer.flush();
+
+        assertEquals(first, second);
+        verify(sessionRepository, never()).saveAll(anyIterable());
+
+        // Once events stop, wall time moves the clock on and the session closes
+        wallClock.addAndGet(GAP.plusMinutes(1).toMillis());
+        sessionizer.flush();
+        assertEquals(first, emitted().get(0).getId());
+    }
+
+    private String assign(Long userId, Instant timestamp) {
+        ActivityLog activity = ActivityLog.builder()
+            .userId(userId)
+            .activityType("PAGE_VIEW")
+            .timestamp(timestamp)
+            .build();
+        sessionizer.assign(activity);
+        assertTrue(activity.getServerSessionId().startsWith(userId + "-"));
+        return activity.getServerSessionId();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<UserSession> emitted() {
+        ArgumentCaptor<Iterable<UserSession>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(sessionRepository).saveAll(captor.capture());
+        List<UserSession> sessions = new ArrayList<>();
+        captor.getValue().forEach(sessions::add);
+        return sessions;
+    }
+}
@@ -0,0 +1,79 @@
+package uth.edu.vn.lms_user_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uth.edu.vn.lms_user_service.service.TimeBucket.Granularity.DAY;
+import static uth.edu.vn.lms_user_service.service.TimeBucket.Granularity.HOUR;
+import static uth.edu.vn.lms_user_service.service.TimeBucket.Granularity.RAW;
+
+class TimeBucketTest {
+
+    private static final ZoneId VIETNAM_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+
+    @Test
+    void splitsIntoDaysHoursAndRawEdges() {
+        List<TimeBucket> buckets = TimeBucket.split(at("2026-01-01T22:30:00Z"), at("2026-01-03T01:15:00Z"), ZoneOffset.UTC);
+
+        assertEquals(List.of(
+            new TimeBucket(at("2026-01-01T22:30:00Z"), at("2026-01-01T23:00:00Z"), RAW),
+            new TimeBucket(at("2026-01-01T23:00:00Z"), at("2026-01-02T00:00:00Z"), HOUR),
+            new TimeBucket(at("2026-01-02T00:00:00Z"), at("2026-01-03T00:00:00Z"), DAY),
+            new TimeBucket(at("2026-01-03T00:00:00Z"), at("2026-01-03T01:00:00Z"), HOUR),
+            new TimeBucket(at("2026-01-03T01:00:00Z"), at("2026-01-03T01:15:00Z"), RAW)
+        ), buckets);
+    }
+
+    @Test
+    void withoutHoursEverythingButWholeDaysIsRaw() {
+        List<TimeBucket> buckets = TimeBucket.split(at("2026-01-01T22:30:00Z"), at("2026-01-03T01:15:00Z"), ZoneOffset.UTC, false);
+
+        assertEquals(List.of(
+            new TimeBucket(at("2026-01-01T22:30:00Z"), at("2026-01-02T00:00:00Z"), RAW),
+            new TimeBucket(at("2026-01-02T00:00:00Z"), at("2026-01-03T00:00:00Z"), DAY),
+            new TimeBucket(at("2026-01-03T00:00:00Z"), at("2026-01-03T01:15:00Z"), RAW)
+        ), buckets);
+    }
+
+    @Test
+    void adjacentRawPiecesAreCoalesced() {
+        List<TimeBucket> buckets = TimeBucket.split(at("2026-01-01T22:30:00Z"), at("2026-01-01T23:45:00Z"), ZoneOffset.UTC);
+
+        assertEquals(List.of(new TimeBucket(at("2026-01-01T22:30:00Z"), at("2026-01-01T23:45:00Z"), RAW)), buckets);
+    }
+
+    @Test
+    void daysAlignOnMidnightOfTheZone() {
+        // Midnight in Vietnam (UTC+7) is 17:00 UTC
+        List<TimeBucket> buckets = TimeBucket.split(at("2026-01-01T17:00:00Z"), at("2026-01-02T17:00:00Z"), VIETNAM_ZONE);
+
+        assertEquals(List.of(new TimeBucket(at("2026-01-01T17:00:00Z"), at("2026-01-02T17:00:00Z"), DAY)), buckets);
+    }
+
+    @Test
+    void emptyRangeHasNoBuckets() {
+        assertTrue(TimeBucket.split(at("2026-01-01T00:00:00Z"), at("2026-01-01T00:00:00Z"), ZoneOffset.UTC).isEmpty());
+    }
+
+    @Test
+    void onlyAlignedBucketsThatEndedAreClosed() {
+        TimeBucket day = new TimeBucket(at("2026-01-01T00:00:00Z"), at("2026-01-02T00:00:00Z"), DAY);
+        TimeBucket raw = new TimeBucket(at("2026-01-01T00:00:00Z"), at("2026-01-01T00:30:00Z"), RAW);
+
+        assertTrue(day.isClosedBefore(at("2026-01-02T00:00:00Z")));
+        assertFalse(day.isClosedBefore(at("2026-01-01T23:59:59Z")));
+        assertFalse(raw.isClosedBefore(at("2026-01-05T00:00:00Z")));
+        assertEquals("DAY:1767225600", day.key());
+    }
+
+    private static Instant at(String instant) {
+        return Instant.parse(instant);
+    }
+}
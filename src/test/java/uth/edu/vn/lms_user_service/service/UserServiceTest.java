@@ -0,0 +1,98 @@
+package uth.edu.vn.lms_user_service.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import uth.edu.vn.lms_user_service.cache.UserCache;
+import uth.edu.vn.lms_user_service.dto.UserChangesResponse;
+import uth.edu.vn.lms_user_service.dto.UserResponse;
+import uth.edu.vn.lms_user_service.entity.Role;
+import uth.edu.vn.lms_user_service.entity.User;
+import uth.edu.vn.lms_user_service.exception.ApiException;
+import uth.edu.vn.lms_user_service.repository.UserRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Change feed cutoff: rows changed within the safety lag are held back
+ */
+class UserServiceTest {
+
+    private UserRepository userRepository;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userService = new UserService(userRepository, mock(UserCache.class), mock(PasswordEncoder.class),
+            mock(ActivityService.class));
+        ReflectionTestUtils.setField(userService, "changesSafetyLag", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(userService, "maxChangesLimit", 1000);
+    }
+
+    @Test
+    void stopsAtTheFirstRowInsideTheSafetyLag() {
+        LocalDateTime now = LocalDateTime.now();
+        changedSince(10, user(1L, 11, now.minusMinutes(5)), user(2L, 12, now.minusSeconds(1)), user(3L, 13, now.minusMinutes(1)));
+
+        UserChangesResponse changes = userService.getChangesSince(10, 10);
+
+        assertEquals(List.of(1L), changes.users().stream().map(UserResponse::id).toList());
+        assertEquals("11", changes.nextToken());
+        assertFalse(changes.hasMore());
+    }
+
+    @Test
+    void fullPageOfSettledRowsReportsMore() {
+        LocalDateTime old = LocalDateTime.now().minusMinutes(5);
+        changedSince(10, user(1L, 11, old), user(2L, 12, old), user(3L, 13, old));
+
+        UserChangesResponse changes = userService.getChangesSince(10, 2);
+
+        assertEquals(List.of(1L, 2L), changes.users().stream().map(UserResponse::id).toList());
+        assertEquals("12", changes.nextToken());
+        assertTrue(changes.hasMore());
+    }
+
+    @Test
+    void nothingVisibleKeepsTheToken() {
+        changedSince(10, user(1L, 11, LocalDateTime.now()));
+
+        UserChangesResponse changes = userService.getChangesSince(10, 10);
+
+        assertTrue(changes.users().isEmpty());
+        assertEquals("10", changes.nextToken());
+        assertFalse(changes.hasMore());
+    }
+
+    @Test
+    void limitOutsideTheAllowedRangeIsRejected() {
+        assertThrows(ApiException.class, () -> userService.getChangesSince(0, 0));
+        assertThrows(ApiException.class, () -> userService.getChangesSince(0, 1001));
+    }
+
+    private void changedSince(long since, User... users) {
+        when(userRepository.findChangedSince(eq(since), any(Pageable.class))).thenReturn(List.of(users));
+    }
+
+    private static User user(Long id, long changeSeq, LocalDateTime updatedAt) {
+        User user = new User("user" + id, "user" + id + "@uth.edu.vn", "secret", Role.STUDENT);
+        user.setId(id);
+        user.setChangeSeq(changeSeq);
+        ReflectionTestUtils.setField(user, "updatedAt", updatedAt);
+        return user;
+    }
+}
@@ -0,0 +1,43 @@
+package uth.edu.vn.lms_user_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IntervalSetTest {
+
+    @Test
+    void normalizeSortsAndMergesOverlappingAndTouchingIntervals() {
+        int[] normalized = IntervalSet.normalize(new int[]{30, 40, 0, 10, 5, 12, 12, 15, 50, 60});
+
+        assertArrayEquals(new int[]{0, 15, 30, 40, 50, 60}, normalized);
+    }
+
+    @Test
+    void normalizeDropsEmptyAndInvertedIntervals() {
+        assertArrayEquals(new int[]{3, 4}, IntervalSet.normalize(new int[]{5, 5, 9, 2, 3, 4}));
+        assertArrayEquals(new int[0], IntervalSet.normalize(new int[0]));
+    }
+
+    @Test
+    void normalizeKeepsContainedIntervalsInsideTheOuterOne() {
+        assertArrayEquals(new int[]{0, 100}, IntervalSet.normalize(new int[]{0, 100, 10, 20, 90, 100}));
+    }
+
+    @Test
+    void unionMergesBothSets() {
+        int[] union = IntervalSet.union(new int[]{0, 10, 40, 50}, new int[]{10, 20, 45, 60});
+
+        assertArrayEquals(new int[]{0, 20, 40, 60}, union);
+        assertEquals(40, IntervalSet.coveredLength(union));
+    }
+
+    @Test
+    void unionWithNothingReturnsTheOtherSet() {
+        int[] intervals = {0, 10};
+
+        assertArrayEquals(intervals, IntervalSet.union(null, intervals));
+        assertArrayEquals(intervals, IntervalSet.union(intervals, new int[0]));
+    }
+}
@@ -0,0 +1,81 @@
+package uth.edu.vn.lms_user_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 0; value < 10; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(0, histogram.percentile(10));
+        assertEquals(4, histogram.percentile(50));
+        assertEquals(9, histogram.percentile(100));
+    }
+
+    @Test
+    void percentilesStayWithinTheBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+
+        assertWithinError(5_000, histogram.percentile(50));
+        assertWithinError(9_000, histogram.percentile(90));
+        assertWithinError(9_900, histogram.percentile(99));
+        assertEquals(10_000, histogram.getTotalCount());
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        assertEquals(0, new LatencyHistogram().percentile(99));
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(1, histogram.countAt(0));
+        assertEquals(1, histogram.countAt(LatencyHistogram.BUCKET_COUNT - 1));
+        assertEquals(LatencyHistogram.bucketMidpoint(LatencyHistogram.BUCKET_COUNT - 1), histogram.percentile(100));
+    }
+
+    @Test
+    void mergedHistogramsEqualOneHistogramOfAllValues() {
+        LatencyHistogram all = new LatencyHistogram();
+        LatencyHistogram even = new LatencyHistogram();
+        LatencyHistogram odd = new LatencyHistogram();
+        for (long value = 0; value < 2_000; value++) {
+            all.record(value);
+            (value % 2 == 0 ? even : odd).record(value);
+        }
+        even.merge(odd);
+
+        for (double p : new double[]{1, 50, 90, 99, 99.9, 100}) {
+            assertEquals(all.percentile(p), even.percentile(p));
+        }
+    }
+
+    @Test
+    void sparseCountsSkipUnknownBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.addCounts(Map.of("3", 2L, "-1", 5L, String.valueOf(LatencyHistogram.BUCKET_COUNT), 7L));
+
+        assertEquals(2, histogram.getTotalCount());
+        assertEquals(3, histogram.percentile(100));
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected * 0.0625, "expected ~" + expected + " but was " + actual);
+    }
+}